@@ -1,21 +1,27 @@
 package com.example.aggregationservice.client;
 
 import com.example.aggregationservice.dto.CreateNotificationRequest;
-import com.example.aggregationservice.dto.NotificationDto;
+import com.example.aggregationservice.dto.MarkNotificationsReadRequest;
+import com.example.aggregationservice.dto.NotificationPageDto;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @FeignClient(name = "notification-service", url = "${notification.service.url:http://localhost:8083}")
 public interface NotificationServiceClient {
 
     @GetMapping("/api/notifications/user/{userId}")
-    List<NotificationDto> getUserNotifications(@PathVariable UUID userId);
+    NotificationPageDto getUserNotifications(@PathVariable UUID userId,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(defaultValue = "20") int limit);
 
     @GetMapping("/api/notifications/user/{userId}/unread")
-    List<NotificationDto> getUnreadNotifications(@PathVariable UUID userId);
+    NotificationPageDto getUnreadNotifications(@PathVariable UUID userId,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "20") int limit);
 
     @GetMapping("/api/notifications/user/{userId}/unread-count")
     Integer getUnreadCount(@PathVariable UUID userId);
@@ -23,6 +29,12 @@ public interface NotificationServiceClient {
     @PostMapping("/api/notifications")
     void createNotification(@RequestBody CreateNotificationRequest request);
 
+    @PostMapping("/api/notifications/batch")
+    Map<String, Integer> createNotifications(@RequestBody List<CreateNotificationRequest> requests);
+
     @PutMapping("/api/notifications/{notificationId}/read")
     void markAsRead(@PathVariable UUID notificationId);
+
+    @PutMapping("/api/notifications/user/{userId}/read")
+    Map<String, Integer> markManyAsRead(@PathVariable UUID userId, @RequestBody MarkNotificationsReadRequest request);
 }
\ No newline at end of file
@@ -4,8 +4,12 @@ import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @FeignClient(name = "user-service", url = "${user.service.url:http://localhost:8081}")
@@ -20,5 +24,12 @@ public interface UserServiceClient {
     @GetMapping("/api/bank/users/{userId}/bank-client-id")
     String getBankClientId(@PathVariable UUID userId);
 
+    @PostMapping("/api/bank/users/bank-client-ids")
+    Map<UUID, String> getBankClientIds(@RequestBody Collection<UUID> userIds);
 
+    @PostMapping("/api/bank/users/by-bank-client-ids")
+    Map<String, UUID> getUserIdsByBankClientIds(@RequestBody Collection<String> bankClientIds);
+
+    @GetMapping("/api/bank/users/bank-client-ids")
+    Map<UUID, String> getAllBankClientIds();
 }
\ No newline at end of file
@@ -30,7 +30,7 @@ public class KafkaTopicsConfig {
 
     @Bean
     public NewTopic transactionExportTopic() {
-        return new NewTopic("transaction_export_events", 1, (short) 1);
+        return new NewTopic("transaction_export_events", 10, (short) 1);
     }
 
     @Bean
@@ -0,0 +1,22 @@
+package com.example.aggregationservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.ml-fanout")
+public class MlFanoutProperties {
+
+    // Группа потребителей ML-сервиса на user_forecast_update
+    private String consumerGroup = "ml-service";
+
+    private int waveSize = 2000;
+    private long maxLag = 5000;
+    private Duration waveInterval = Duration.ofSeconds(30);
+    private Duration holdOff = Duration.ofSeconds(60);
+    private Duration lagTimeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,54 @@
+package com.example.aggregationservice.config;
+
+import com.example.aggregationservice.model.enums.MisfirePolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZoneId;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.scheduling")
+public class SchedulingProperties {
+
+    @Data
+    public static class Job {
+        private String cron;
+        private MisfirePolicy misfirePolicy = MisfirePolicy.FIRE_ONCE;
+        private boolean enabled = true;
+        private boolean partitioned = false;
+    }
+
+    @Data
+    public static class Cluster {
+        private boolean enabled = true;
+        private int partitions = 16;
+        private long heartbeatIntervalMs = 10000;
+        private long memberTimeoutMs = 30000;
+    }
+
+    @Data
+    public static class TransactionExport {
+        private int slots = 96;
+        private MisfirePolicy misfirePolicy = MisfirePolicy.FIRE_ONCE;
+        private boolean enabled = true;
+        // Как и у прежних групп: прогон слота делится по партициям между узлами кластера
+        private boolean partitioned = true;
+    }
+
+    private String zone;
+    private Duration misfireGracePeriod = Duration.ofMinutes(15);
+    private Duration historyRetention = Duration.ofDays(30);
+
+    private Cluster cluster = new Cluster();
+    private TransactionExport transactionExport = new TransactionExport();
+    private Job balanceUpdate = new Job();
+    private Job mlAnalysis = new Job();
+    private Job productSync = new Job();
+
+    public ZoneId getZoneId() {
+        return zone == null || zone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(zone);
+    }
+}
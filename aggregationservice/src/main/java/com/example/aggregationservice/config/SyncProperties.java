@@ -0,0 +1,33 @@
+package com.example.aggregationservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.sync")
+public class SyncProperties {
+
+    // Сколько синхронизаций пользователей (обращений к банкам) допускается за сутки на весь кластер
+    private int dailyBudget = 20000;
+
+    private Duration minInterval = Duration.ofHours(1);
+    private Duration defaultInterval = Duration.ofDays(1);
+    private Duration maxInterval = Duration.ofDays(7);
+
+    // Синхронизируем, когда ожидаем примерно столько новых транзакций
+    private double targetNewTransactions = 3.0;
+    private double rateSmoothing = 0.3;
+
+    // Повтор после сбоя банка: окно и счётчик пустых синхронизаций не трогаем
+    private Duration failureRetryInterval = Duration.ofMinutes(15);
+
+    private Duration windowOverlap = Duration.ofHours(1);
+    private Duration maxWindow = Duration.ofDays(30);
+
+    // Сколько кандидатов читать из очереди, чтобы после фильтра по партиции набрать бюджет
+    private int candidateScanFactor = 4;
+}
@@ -1,7 +1,8 @@
 package com.example.aggregationservice.config;
 
-import com.example.aggregationservice.model.enums.TimeGroup;
+import com.example.aggregationservice.service.RecurringTaskRegistry;
 import com.example.aggregationservice.service.TaskSchedulerService;
+import com.example.aggregationservice.service.UserDirectoryService;
 import com.example.aggregationservice.service.UserGroupService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -9,7 +10,8 @@ import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
 
-import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @Slf4j
@@ -18,12 +20,21 @@ import java.util.Map;
 public class TaskInitializer implements ApplicationRunner {
 
     private final TaskSchedulerService taskSchedulerService;
+    private final RecurringTaskRegistry recurringTaskRegistry;
     private final UserGroupService userGroupService;
+    private final UserDirectoryService userDirectoryService;
+    private final SchedulingProperties schedulingProperties;
 
     @Override
     public void run(ApplicationArguments args) {
         try {
-            log.info("Initializing all scheduled tasks...");
+            log.info("Initializing recurring task definitions...");
+
+            try {
+                userDirectoryService.bootstrapIfEmpty();
+            } catch (Exception e) {
+                log.warn("Failed to bootstrap user directory: {}. Waiting for lifecycle events.", e.getMessage());
+            }
 
             try {
                 userGroupService.refreshUserGroupsCache();
@@ -31,98 +42,72 @@ public class TaskInitializer implements ApplicationRunner {
                 log.warn("Failed to refresh user groups cache during initialization: {}. Will retry later.", e.getMessage());
             }
 
-            Instant nextSunday2AM = calculateNextSunday2AM();
-            taskSchedulerService.scheduleTask(
-                    "BALANCE_UPDATE",
-                    "WEEKLY_BALANCE_UPDATE",
-                    Map.of("scope", "ALL_USERS"),
-                    nextSunday2AM
-            );
-            log.info("Scheduled weekly balance update for {}", nextSunday2AM);
+            removeLegacyTaskRows();
 
-            scheduleTransactionExportTasks();
+            List<String> registered = new ArrayList<>();
 
-            Instant nextSunday11PM = calculateNextSunday11PM();
-            taskSchedulerService.scheduleTask(
-                    "ML_ANALYSIS",
-                    "WEEKLY_ML_ANALYSIS",
-                    Map.of("analysisType", "WEEKLY_FORECAST"),
-                    nextSunday11PM
-            );
+            registerJob(registered, "WEEKLY_BALANCE_UPDATE", "BALANCE_UPDATE",
+                    schedulingProperties.getBalanceUpdate(), Map.of("scope", "ALL_USERS"));
 
-            taskSchedulerService.scheduleTask(
-                    "PRODUCT_SYNC",
-                    "DAILY_PRODUCT_SYNC",
-                    Map.of("scope", "ALL_BANKS"),
-                    getNextExecutionTime(3, 0)
-            );
-            log.info("Scheduled daily product sync");
+            registerTransactionExportSlots(registered);
 
+            registerJob(registered, "WEEKLY_ML_ANALYSIS", "ML_ANALYSIS",
+                    schedulingProperties.getMlAnalysis(), Map.of("analysisType", "WEEKLY_FORECAST"));
 
-            log.info("Scheduled weekly ML analysis for {}", nextSunday11PM);
+            registerJob(registered, "DAILY_PRODUCT_SYNC", "PRODUCT_SYNC",
+                    schedulingProperties.getProductSync(), Map.of("scope", "ALL_BANKS"));
 
-            log.info("All scheduled tasks initialized successfully");
+            recurringTaskRegistry.retainOnly(registered);
+
+            log.info("Registered {} recurring task definitions", registered.size());
 
         } catch (Exception e) {
             log.error("Failed to initialize scheduled tasks", e);
         }
     }
 
-    private void scheduleTransactionExportTasks() {
-        scheduleGroupTask(TimeGroup.GROUP_00_06, 2, 30);
-        scheduleGroupTask(TimeGroup.GROUP_06_12, 6, 30);
-        scheduleGroupTask(TimeGroup.GROUP_12_18, 12, 30);
-        scheduleGroupTask(TimeGroup.GROUP_18_00, 18, 30);
-    }
-
-    private void scheduleGroupTask(TimeGroup timeGroup, int hour, int minute) {
-        Map<String, Object> taskData = Map.of(
-                "groupCode", timeGroup.name(),
-                "description", "Daily transaction export for " + timeGroup.getCode()
-        );
-
-        Instant firstExecution = getNextExecutionTime(hour, minute);
+    // Сутки делятся на N равных слотов, у каждого слота своё ежедневное определение
+    private void registerTransactionExportSlots(List<String> registered) {
+        SchedulingProperties.TransactionExport export = schedulingProperties.getTransactionExport();
+        int slotCount = userGroupService.getExportSlotCount();
 
-        taskSchedulerService.scheduleTask(
-                "TRANSACTION_EXPORT",
-                "DAILY_EXPORT_" + timeGroup.getCode(),
-                taskData,
-                firstExecution
-        );
+        for (int slot = 0; slot < slotCount; slot++) {
+            int startMinute = userGroupService.getExportSlotStartMinute(slot);
+            String startTime = String.format("%02d:%02d", startMinute / 60, startMinute % 60);
+            String cron = String.format("0 %d %d * * ?", startMinute % 60, startMinute / 60);
 
-        log.info("Scheduled {} export for {}:{}", timeGroup.getCode(), hour, minute);
-    }
-
-    private Instant getNextExecutionTime(int hour, int minute) {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime nextRun = now.withHour(hour).withMinute(minute).withSecond(0);
+            Map<String, Object> taskData = Map.of(
+                    "slot", slot,
+                    "slotCount", slotCount,
+                    "description", "Daily transaction export for slot starting at " + startTime
+            );
 
-        if (now.isAfter(nextRun)) {
-            nextRun = nextRun.plusDays(1);
+            String name = String.format("DAILY_EXPORT_%03d_OF_%d", slot, slotCount);
+            recurringTaskRegistry.register(name, "TRANSACTION_EXPORT", cron, taskData,
+                    export.getMisfirePolicy(), export.isEnabled(), export.isPartitioned());
+            registered.add(name);
         }
 
-        return nextRun.atZone(ZoneId.systemDefault()).toInstant();
+        log.info("Registered {} transaction export slots", slotCount);
     }
 
-    private Instant calculateNextSunday2AM() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime nextSunday = now.with(DayOfWeek.SUNDAY).withHour(2).withMinute(0).withSecond(0);
-
-        if (now.isAfter(nextSunday)) {
-            nextSunday = nextSunday.plusWeeks(1);
+    private void registerJob(List<String> registered, String name, String taskType,
+                             SchedulingProperties.Job job, Map<String, Object> taskData) {
+        if (job.getCron() == null || job.getCron().isBlank()) {
+            log.warn("No cron configured for {}, recurring task will not run", name);
+            return;
         }
 
-        return nextSunday.atZone(ZoneId.systemDefault()).toInstant();
+        recurringTaskRegistry.register(name, taskType, job.getCron(), taskData,
+                job.getMisfirePolicy(), job.isEnabled(), job.isPartitioned());
+        registered.add(name);
     }
 
-    private Instant calculateNextSunday11PM() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime nextSunday = now.with(DayOfWeek.SUNDAY).withHour(23).withMinute(0).withSecond(0);
-
-        if (now.isAfter(nextSunday)) {
-            nextSunday = nextSunday.plusWeeks(1);
-        }
-
-        return nextSunday.atZone(ZoneId.systemDefault()).toInstant();
+    // Раньше каждая перезагрузка добавляла новые строки в scheduled_tasks
+    private void removeLegacyTaskRows() {
+        taskSchedulerService.deleteLegacyRecurringTasks("BALANCE_UPDATE", "WEEKLY_BALANCE_UPDATE");
+        taskSchedulerService.deleteLegacyRecurringTasks("TRANSACTION_EXPORT", "DAILY_EXPORT_%");
+        taskSchedulerService.deleteLegacyRecurringTasks("ML_ANALYSIS", "WEEKLY_ML_ANALYSIS");
+        taskSchedulerService.deleteLegacyRecurringTasks("PRODUCT_SYNC", "DAILY_PRODUCT_SYNC");
     }
-}
\ No newline at end of file
+}
@@ -1,12 +1,18 @@
 package com.example.aggregationservice.controller;
 
+import com.example.aggregationservice.model.ScheduledTask;
+import com.example.aggregationservice.repository.ScheduledTaskRepository;
+import com.example.aggregationservice.service.ForecastBacklogService;
+import com.example.aggregationservice.service.SchedulerMembershipService;
 import com.example.aggregationservice.service.TaskSchedulerService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 
 @RestController
 @RequestMapping("/api/tasks")
@@ -14,6 +20,9 @@ import java.util.Map;
 public class TaskController {
 
     private final TaskSchedulerService taskSchedulerService;
+    private final SchedulerMembershipService membershipService;
+    private final ScheduledTaskRepository taskRepository;
+    private final ForecastBacklogService forecastBacklogService;
 
     @PostMapping("/balance-update")
     public ResponseEntity<String> scheduleBalanceUpdate(@RequestBody Map<String, Object> request) {
@@ -31,4 +40,28 @@ public class TaskController {
 
         return ResponseEntity.ok("Balance update scheduled");
     }
-}
\ No newline at end of file
+
+    @GetMapping("/cluster")
+    public ResponseEntity<Map<String, Object>> getClusterState() {
+        return ResponseEntity.ok(Map.of(
+                "instanceId", membershipService.getInstanceId(),
+                "liveMembers", membershipService.getLiveMembers(),
+                "partitionCount", membershipService.getPartitionCount(),
+                "ownedPartitions", new TreeSet<>(membershipService.getOwnedPartitions())
+        ));
+    }
+
+    // Прогресс еженедельной ML-рассылки: ожидающие волны и текущая очередь перед ML-сервисом
+    @GetMapping("/ml-fanout")
+    public ResponseEntity<Map<String, Object>> getMlFanoutProgress() {
+        List<Map<String, Object>> waves = taskRepository.findByTypeAndStatus("ML_ANALYSIS", "PENDING").stream()
+                .filter(task -> task.getTaskData() != null && task.getTaskData().containsKey("runId"))
+                .map(ScheduledTask::getTaskData)
+                .toList();
+
+        return ResponseEntity.ok(Map.of(
+                "pendingWaves", waves,
+                "backlog", forecastBacklogService.getBacklog()
+        ));
+    }
+}
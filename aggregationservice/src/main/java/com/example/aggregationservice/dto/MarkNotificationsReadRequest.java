@@ -0,0 +1,14 @@
+package com.example.aggregationservice.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class MarkNotificationsReadRequest {
+    private List<UUID> notificationIds;
+    private String beforeCursor;
+    // Все уведомления пользователя; задаётся явно, пустой запрос отклоняется
+    private Boolean all;
+}
@@ -0,0 +1,11 @@
+package com.example.aggregationservice.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class NotificationPageDto {
+    private List<NotificationDto> items;
+    private String nextCursor;
+}
@@ -0,0 +1,35 @@
+package com.example.aggregationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionChangeEvent {
+    private UUID userId;
+    private String bankClientId;
+    private UUID accountId;
+    private List<Change> transactions;
+    private Long timestamp;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Change {
+        private UUID id;
+        private LocalDateTime bookingDate;
+        private BigDecimal amount;
+        private Boolean isExpense;
+        private String category;
+    }
+}
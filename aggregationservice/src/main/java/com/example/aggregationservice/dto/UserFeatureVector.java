@@ -0,0 +1,34 @@
+package com.example.aggregationservice.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+public class UserFeatureVector {
+    // Ключ — понедельник недели (ISO)
+    private TreeMap<LocalDate, BigDecimal> weeklyExpense = new TreeMap<>();
+    private TreeMap<LocalDate, BigDecimal> weeklyIncome = new TreeMap<>();
+
+    // Расходы по категориям за те же недели; categoryExpense — их сумма по окну
+    private TreeMap<LocalDate, Map<String, BigDecimal>> weeklyCategoryExpense = new TreeMap<>();
+    private Map<String, BigDecimal> categoryExpense = new HashMap<>();
+    private Map<String, Double> categoryShares = new HashMap<>();
+
+    private List<LocalDate> recentIncomeDates = new ArrayList<>();
+    private Double incomeIntervalDays;
+
+    private Map<UUID, BigDecimal> accountBalances = new HashMap<>();
+    private BigDecimal totalBalance = BigDecimal.ZERO;
+
+    private Long transactionCount = 0L;
+}
@@ -16,4 +16,8 @@ public class UserForecastUpdateEvent {
     private String bankClientId;
     private String analysisType;
     private Long timestamp;
+
+    // Версия и снимок признаков из user_ml_features на момент отправки
+    private Long featureVersion;
+    private UserFeatureVector features;
 }
\ No newline at end of file
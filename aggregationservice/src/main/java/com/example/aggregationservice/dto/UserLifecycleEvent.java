@@ -0,0 +1,20 @@
+package com.example.aggregationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserLifecycleEvent {
+    private String eventType;
+    private UUID userId;
+    private String bankClientId;
+    private boolean active;
+    private Long timestamp;
+}
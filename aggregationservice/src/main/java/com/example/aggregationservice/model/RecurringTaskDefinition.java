@@ -0,0 +1,53 @@
+package com.example.aggregationservice.model;
+
+import com.example.aggregationservice.model.enums.MisfirePolicy;
+import lombok.Data;
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@Entity
+@Table(name = "recurring_task_definitions")
+public class RecurringTaskDefinition {
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(name = "name", nullable = false, unique = true)
+    private String name;
+
+    @Column(name = "task_type", nullable = false)
+    private String taskType;
+
+    @Column(name = "cron_expression", nullable = false)
+    private String cronExpression;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    private Map<String, Object> taskData;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "misfire_policy", nullable = false)
+    private MisfirePolicy misfirePolicy = MisfirePolicy.FIRE_ONCE;
+
+    private Boolean enabled = true;
+
+    private Boolean partitioned = false;
+
+    @Column(name = "next_fire_time")
+    private Instant nextFireTime;
+
+    @Column(name = "last_fire_time")
+    private Instant lastFireTime;
+
+    @Column(name = "created_at")
+    private Instant createdAt = Instant.now();
+
+    @Column(name = "updated_at")
+    private Instant updatedAt = Instant.now();
+}
@@ -38,9 +38,19 @@ public class ScheduledTask {
     private String lockedBy;
     private Instant lockedAt;
 
+    @Column(name = "definition_id")
+    private UUID definitionId;
+
+    @Column(name = "partition_key")
+    private Integer partitionKey;
+
     @Column(name = "created_at")
     private Instant createdAt = Instant.now();
 
     @Column(name = "updated_at")
     private Instant updatedAt = Instant.now();
+
+    // Обработчик выставляет, если работа не закончена: та же строка вернётся в очередь к этому времени
+    @Transient
+    private Instant continueAt;
 }
\ No newline at end of file
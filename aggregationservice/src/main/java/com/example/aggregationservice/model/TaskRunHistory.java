@@ -0,0 +1,44 @@
+package com.example.aggregationservice.model;
+
+import lombok.Data;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Entity
+@Table(name = "task_run_history")
+public class TaskRunHistory {
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(name = "definition_id")
+    private UUID definitionId;
+
+    @Column(name = "partition_key")
+    private Integer partitionKey;
+
+    @Column(name = "task_type", nullable = false)
+    private String taskType;
+
+    @Column(name = "task_name", nullable = false)
+    private String taskName;
+
+    @Column(nullable = false)
+    private String status;
+
+    @Column(name = "scheduled_time")
+    private Instant scheduledTime;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "finished_at", nullable = false)
+    private Instant finishedAt = Instant.now();
+
+    private Integer retryCount = 0;
+    private String instanceId;
+    private String error;
+}
@@ -0,0 +1,29 @@
+package com.example.aggregationservice.model;
+
+import lombok.Data;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Entity
+@Table(name = "user_directory")
+public class UserDirectoryEntry {
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(name = "bank_client_id")
+    private String bankClientId;
+
+    @Column(nullable = false)
+    private boolean active = true;
+
+    // Время события в user-service (мс): более старые события не перетирают более новые
+    @Column(name = "source_timestamp", nullable = false)
+    private long sourceTimestamp;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt = Instant.now();
+}
@@ -0,0 +1,29 @@
+package com.example.aggregationservice.model;
+
+import com.example.aggregationservice.dto.UserFeatureVector;
+import lombok.Data;
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Entity
+@Table(name = "user_ml_features")
+public class UserMlFeatures {
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(nullable = false)
+    private long version;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb", nullable = false)
+    private UserFeatureVector features = new UserFeatureVector();
+
+    @Column(name = "updated_at")
+    private Instant updatedAt = Instant.now();
+}
@@ -0,0 +1,38 @@
+package com.example.aggregationservice.model;
+
+import lombok.Data;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Entity
+@Table(name = "user_sync_state")
+public class UserSyncState {
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(name = "bank_client_id")
+    private String bankClientId;
+
+    // Сглаженная оценка новых транзакций в сутки
+    @Column(name = "tx_rate_per_day", nullable = false)
+    private double txRatePerDay;
+
+    @Column(name = "last_sync_at")
+    private Instant lastSyncAt;
+
+    @Column(name = "last_change_at")
+    private Instant lastChangeAt;
+
+    @Column(name = "next_sync_at", nullable = false)
+    private Instant nextSyncAt;
+
+    @Column(name = "empty_syncs", nullable = false)
+    private int emptySyncs;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt = Instant.now();
+}
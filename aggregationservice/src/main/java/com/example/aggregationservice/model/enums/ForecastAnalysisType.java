@@ -0,0 +1,28 @@
+package com.example.aggregationservice.model.enums;
+
+// Чем выше приоритет, тем больше данных пересчитывает ML; при склейке запросов побеждает самый сильный
+public enum ForecastAnalysisType {
+    DAILY_UPDATE(1),
+    WEEKLY_FORECAST(2),
+    CONSENT_APPROVED_FORECAST(3),
+    INITIAL_FORECAST(4);
+
+    private final int priority;
+
+    ForecastAnalysisType(int priority) {
+        this.priority = priority;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public static int priorityOf(String analysisType) {
+        for (ForecastAnalysisType type : values()) {
+            if (type.name().equals(analysisType)) {
+                return type.priority;
+            }
+        }
+        return 0;
+    }
+}
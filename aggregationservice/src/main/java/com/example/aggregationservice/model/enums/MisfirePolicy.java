@@ -0,0 +1,6 @@
+package com.example.aggregationservice.model.enums;
+
+public enum MisfirePolicy {
+    FIRE_ONCE,
+    SKIP
+}
@@ -0,0 +1,28 @@
+package com.example.aggregationservice.repository;
+
+import com.example.aggregationservice.model.RecurringTaskDefinition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface RecurringTaskDefinitionRepository extends JpaRepository<RecurringTaskDefinition, UUID> {
+
+    Optional<RecurringTaskDefinition> findByName(String name);
+
+    List<RecurringTaskDefinition> findByTaskType(String taskType);
+
+    @Query(value = """
+        SELECT * FROM recurring_task_definitions d
+        WHERE d.enabled = true AND d.next_fire_time <= :now
+        ORDER BY d.next_fire_time
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<RecurringTaskDefinition> lockDueDefinitions(@Param("now") Instant now);
+}
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -18,6 +19,12 @@ public interface ScheduledTaskRepository extends JpaRepository<ScheduledTask, UU
     @Query("SELECT st FROM ScheduledTask st WHERE st.scheduledTime <= :now AND st.status = 'PENDING' ORDER BY st.priority DESC, st.scheduledTime ASC")
     List<ScheduledTask> findDueTasks(@Param("now") Instant now);
 
+    @Query("SELECT st FROM ScheduledTask st WHERE st.scheduledTime <= :now AND st.status = 'PENDING' " +
+            "AND (st.partitionKey IS NULL OR st.partitionKey IN :partitions) " +
+            "ORDER BY st.priority DESC, st.scheduledTime ASC")
+    List<ScheduledTask> findDueTasksForPartitions(@Param("now") Instant now,
+                                                  @Param("partitions") Collection<Integer> partitions);
+
     @Modifying
     @Query("UPDATE ScheduledTask st SET st.status = 'PROCESSING', st.lockedBy = :lockedBy, st.lockedAt = :now WHERE st.id = :id AND st.status = 'PENDING'")
     int lockTask(@Param("id") UUID id, @Param("lockedBy") String lockedBy, @Param("now") Instant now);
@@ -27,8 +34,20 @@ public interface ScheduledTaskRepository extends JpaRepository<ScheduledTask, UU
 
     List<ScheduledTask> findByTaskTypeAndTaskName(String taskType, String taskName);
 
+    boolean existsByDefinitionIdAndStatusIn(UUID definitionId, Collection<String> statuses);
+
     @Modifying
     @Query("DELETE FROM ScheduledTask st WHERE st.taskType = :taskType AND st.taskName LIKE :taskNamePattern")
     void deleteByTaskTypeAndNamePattern(@Param("taskType") String taskType,
                                         @Param("taskNamePattern") String taskNamePattern);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query("DELETE FROM ScheduledTask st WHERE st.taskType = :taskType AND st.taskName LIKE :taskNamePattern AND st.definitionId IS NULL")
+    int deleteLegacyByTaskTypeAndNamePattern(@Param("taskType") String taskType,
+                                             @Param("taskNamePattern") String taskNamePattern);
+
+    // [taskType, count, oldest scheduledTime] по задачам, которые уже пора выполнять, но никто не забрал
+    @Query("SELECT st.taskType, COUNT(st), MIN(st.scheduledTime) FROM ScheduledTask st " +
+            "WHERE st.status = 'PENDING' AND st.scheduledTime <= :now GROUP BY st.taskType")
+    List<Object[]> summarizeDueByTaskType(@Param("now") Instant now);
+}
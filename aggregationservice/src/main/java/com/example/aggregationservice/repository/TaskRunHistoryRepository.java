@@ -0,0 +1,19 @@
+package com.example.aggregationservice.repository;
+
+import com.example.aggregationservice.model.TaskRunHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Repository
+public interface TaskRunHistoryRepository extends JpaRepository<TaskRunHistory, UUID> {
+
+    @Modifying
+    @Query("DELETE FROM TaskRunHistory h WHERE h.finishedAt < :cutoff")
+    int deleteFinishedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,38 @@
+package com.example.aggregationservice.repository;
+
+import com.example.aggregationservice.model.UserDirectoryEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface UserDirectoryRepository extends JpaRepository<UserDirectoryEntry, UUID> {
+
+    @Query("SELECT u.userId FROM UserDirectoryEntry u WHERE u.active = true ORDER BY u.userId")
+    List<UUID> findActiveUserIds();
+
+    @Query("SELECT u.userId FROM UserDirectoryEntry u WHERE u.active = true AND u.userId > :after ORDER BY u.userId")
+    List<UUID> findActiveUserIdsAfter(@Param("after") UUID after, Pageable pageable);
+
+    long countByActiveTrue();
+
+    List<UserDirectoryEntry> findByUserIdIn(Collection<UUID> userIds);
+
+    List<UserDirectoryEntry> findByBankClientIdIn(Collection<String> bankClientIds);
+
+    Optional<UserDirectoryEntry> findFirstByBankClientIdOrderBySourceTimestampDesc(String bankClientId);
+
+    // Всё, что снапшот не подтвердил и что не обновлялось событиями позже него, считается неактивным
+    @Modifying
+    @Query("UPDATE UserDirectoryEntry u SET u.active = false, u.sourceTimestamp = :snapshotTimestamp " +
+            "WHERE u.active = true AND u.sourceTimestamp < :snapshotTimestamp")
+    int deactivateNotSeenSince(@Param("snapshotTimestamp") long snapshotTimestamp);
+}
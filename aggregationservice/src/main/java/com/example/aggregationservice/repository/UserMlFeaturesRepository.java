@@ -0,0 +1,26 @@
+package com.example.aggregationservice.repository;
+
+import com.example.aggregationservice.model.UserMlFeatures;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface UserMlFeaturesRepository extends JpaRepository<UserMlFeatures, UUID> {
+
+    @Modifying
+    @Query(value = "INSERT INTO user_ml_features (user_id, version, features, updated_at) " +
+            "VALUES (:userId, 0, CAST('{}' AS jsonb), now()) ON CONFLICT (user_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("userId") UUID userId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM UserMlFeatures f WHERE f.userId = :userId")
+    Optional<UserMlFeatures> findForUpdate(@Param("userId") UUID userId);
+}
@@ -0,0 +1,26 @@
+package com.example.aggregationservice.repository;
+
+import com.example.aggregationservice.model.UserSyncState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UserSyncStateRepository extends JpaRepository<UserSyncState, UUID> {
+
+    // Деактивированные и удалённые пользователи в очередь не попадают, иначе их синхронизация шла бы вечно
+    @Query(value = "SELECT s.user_id FROM user_sync_state s " +
+            "JOIN user_directory d ON d.user_id = s.user_id AND d.active = true " +
+            "WHERE s.next_sync_at <= :now " +
+            "ORDER BY s.next_sync_at LIMIT :limit", nativeQuery = true)
+    List<UUID> findDueUserIds(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Query("SELECT s.userId FROM UserSyncState s WHERE s.userId IN :userIds")
+    List<UUID> findKnownUserIds(@Param("userIds") Collection<UUID> userIds);
+}
@@ -12,24 +12,55 @@ import org.springframework.stereotype.Component;
 public class TaskProcessor {
 
     private final TaskSchedulerService taskSchedulerService;
+    private final RecurringTaskRegistry recurringTaskRegistry;
     private final BalanceUpdateHandler balanceUpdateHandler;
     private final BankConsentHandler bankConsentHandler;
     private final TransactionExportHandler transactionExportHandler;
     private final ProductSyncHandler productSyncHandler;
     private final MlAnalysisHandler mlAnalysisHandler;
+    private final UserFeatureBackfillHandler userFeatureBackfillHandler;
+    private final UserDirectoryService userDirectoryService;
+    private final UserGroupService userGroupService;
 
 
     @Scheduled(fixedRate = 10000)
     public void processTasks() {
+        try {
+            recurringTaskRegistry.fireDueDefinitions();
+        } catch (Exception e) {
+            log.error("Recurring task firing failed", e);
+        }
+
         try {
             taskSchedulerService.processDueTasks(balanceUpdateHandler);
             taskSchedulerService.processDueTasks(bankConsentHandler);
             taskSchedulerService.processDueTasks(transactionExportHandler);
             taskSchedulerService.processDueTasks(productSyncHandler);
             taskSchedulerService.processDueTasks(mlAnalysisHandler);
+            taskSchedulerService.processDueTasks(userFeatureBackfillHandler);
 
         } catch (Exception e) {
             log.error("Task processing failed", e);
         }
     }
-}
\ No newline at end of file
+
+    @Scheduled(cron = "${app.scheduling.history-prune-cron:0 15 4 * * ?}")
+    public void pruneRunHistory() {
+        try {
+            recurringTaskRegistry.pruneHistory();
+        } catch (Exception e) {
+            log.error("Task run history pruning failed", e);
+        }
+    }
+
+    // Страховка от пропущенных событий: сверка локального справочника со снимком user-service
+    @Scheduled(cron = "${app.user-directory.reconcile-cron:0 30 1 * * ?}")
+    public void reconcileUserDirectory() {
+        try {
+            userDirectoryService.bootstrapSnapshot();
+            userGroupService.refreshUserGroupsCache();
+        } catch (Exception e) {
+            log.warn("User directory reconciliation failed: {}", e.getMessage());
+        }
+    }
+}
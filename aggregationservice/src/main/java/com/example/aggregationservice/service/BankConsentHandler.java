@@ -1,6 +1,5 @@
 package com.example.aggregationservice.service;
 
-import com.example.aggregationservice.client.UserServiceClient;
 import com.example.aggregationservice.dto.UserForecastUpdateEvent;
 import com.example.aggregationservice.model.Account;
 import com.example.aggregationservice.model.Bank;
@@ -10,8 +9,6 @@ import com.example.aggregationservice.repository.BankRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.ResponseEntity;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 import com.fasterxml.jackson.core.type.TypeReference;
 
@@ -32,8 +29,8 @@ public class BankConsentHandler implements TaskHandler {
     private final TaskSchedulerService taskSchedulerService;
     private final BalanceService balanceService;
     private final TransactionService transactionService;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
-    private final UserServiceClient userServiceClient;
+    private final ForecastUpdatePublisher forecastUpdatePublisher;
+    private final UserDirectoryService userDirectoryService;
 
     @Override
     public String getSupportedTaskType() {
@@ -93,10 +90,9 @@ public class BankConsentHandler implements TaskHandler {
 
     private void sendToMlService(String bankClientId, String analysisType) {
         try {
-            ResponseEntity<UUID> response = userServiceClient.getUserIdByBankClientId(bankClientId);
+            UUID userId = userDirectoryService.getUserId(bankClientId);
 
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                UUID userId = response.getBody();
+            if (userId != null) {
 
                 UserForecastUpdateEvent event = UserForecastUpdateEvent.builder()
                         .userId(userId)
@@ -105,7 +101,7 @@ public class BankConsentHandler implements TaskHandler {
                         .timestamp(System.currentTimeMillis())
                         .build();
 
-                kafkaTemplate.send("user_forecast_update", userId.toString(), event);
+                forecastUpdatePublisher.publish(event);
 
             }
 
@@ -0,0 +1,117 @@
+package com.example.aggregationservice.service;
+
+import com.example.aggregationservice.config.MlFanoutProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Оценка очереди запросов прогноза перед ML: лаг группы ML-сервиса на user_forecast_update
+ * плюс события, ещё не дошедшие до Kafka (склейка и outbox).
+ */
+@Slf4j
+@Service
+public class ForecastBacklogService {
+
+    private static final String PENDING_SQL = """
+        SELECT (SELECT COUNT(*) FROM forecast_update_requests)
+             + (SELECT COUNT(*) FROM outbox_events WHERE topic = ?)
+    """;
+
+    private final AdminClient adminClient;
+    private final JdbcTemplate jdbcTemplate;
+    private final MlFanoutProperties properties;
+    private final AtomicLong lastConsumerLag = new AtomicLong();
+
+    public ForecastBacklogService(KafkaAdmin kafkaAdmin, JdbcTemplate jdbcTemplate,
+                                  MlFanoutProperties properties, MeterRegistry meterRegistry) {
+        this.adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties());
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        Gauge.builder("ml.forecast.consumer.lag", lastConsumerLag, AtomicLong::get)
+                .description("Last measured lag of the ML consumer group on user_forecast_update")
+                .tag("group", properties.getConsumerGroup())
+                .register(meterRegistry);
+    }
+
+    public long getBacklog() {
+        Long pending = jdbcTemplate.queryForObject(PENDING_SQL, Long.class, ForecastUpdatePublisher.TOPIC);
+        return getConsumerLag() + (pending != null ? pending : 0);
+    }
+
+    public long getConsumerLag() {
+        long timeoutMs = properties.getLagTimeout().toMillis();
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed = adminClient
+                    .listConsumerGroupOffsets(properties.getConsumerGroup())
+                    .partitionsToOffsetAndMetadata()
+                    .get(timeoutMs, TimeUnit.MILLISECONDS);
+
+            // Партиции берём из описания топика: у новой или сброшенной группы коммитов нет вовсе
+            TopicDescription topic = adminClient
+                    .describeTopics(List.of(ForecastUpdatePublisher.TOPIC))
+                    .allTopicNames()
+                    .get(timeoutMs, TimeUnit.MILLISECONDS)
+                    .get(ForecastUpdatePublisher.TOPIC);
+
+            Map<TopicPartition, OffsetSpec> latestRequest = new HashMap<>();
+            Map<TopicPartition, OffsetSpec> earliestRequest = new HashMap<>();
+            for (TopicPartitionInfo info : topic.partitions()) {
+                TopicPartition tp = new TopicPartition(ForecastUpdatePublisher.TOPIC, info.partition());
+                latestRequest.put(tp, OffsetSpec.latest());
+                if (committed.get(tp) == null) {
+                    earliestRequest.put(tp, OffsetSpec.earliest());
+                }
+            }
+
+            Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> latest = adminClient
+                    .listOffsets(latestRequest)
+                    .all()
+                    .get(timeoutMs, TimeUnit.MILLISECONDS);
+            // Без коммита считаем позицией начало лога: для новой или сброшенной группы это худший случай
+            Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> earliest = earliestRequest.isEmpty()
+                    ? Map.of()
+                    : adminClient.listOffsets(earliestRequest).all().get(timeoutMs, TimeUnit.MILLISECONDS);
+
+            long lag = 0;
+            for (Map.Entry<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> entry : latest.entrySet()) {
+                OffsetAndMetadata offset = committed.get(entry.getKey());
+                long position = offset != null ? offset.offset() : earliest.get(entry.getKey()).offset();
+                lag += Math.max(entry.getValue().offset() - position, 0);
+            }
+
+            lastConsumerLag.set(lag);
+            return lag;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return lastConsumerLag.get();
+        } catch (Exception e) {
+            // Без данных о лаге держим прежнюю оценку, чтобы не разогнать рассылку вслепую
+            log.warn("Failed to measure lag of {}: {}", properties.getConsumerGroup(), e.getMessage());
+            return lastConsumerLag.get();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        adminClient.close();
+    }
+}
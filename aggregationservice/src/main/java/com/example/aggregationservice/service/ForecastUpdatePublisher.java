@@ -0,0 +1,166 @@
+package com.example.aggregationservice.service;
+
+import com.example.aggregationservice.dto.UserForecastUpdateEvent;
+import com.example.aggregationservice.model.UserMlFeatures;
+import com.example.aggregationservice.model.enums.ForecastAnalysisType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Публикация событий user_forecast_update. Запросы одного пользователя внутри окна склеиваются
+ * в forecast_update_requests в одно событие с самым сильным типом анализа, затем уходят в outbox.
+ */
+@Slf4j
+@Service
+public class ForecastUpdatePublisher {
+
+    public static final String TOPIC = "user_forecast_update";
+
+    private static final int BATCH_SIZE = 500;
+
+    // Окно не сдвигается новыми запросами: due_at фиксируется первым, иначе активный пользователь ждал бы вечно
+    private static final String UPSERT_SQL = """
+        INSERT INTO forecast_update_requests (user_id, bank_client_id, analysis_type, priority, due_at)
+        VALUES (?, ?, ?, ?, now() + make_interval(secs => ?))
+        ON CONFLICT (user_id) DO UPDATE SET
+            bank_client_id = COALESCE(EXCLUDED.bank_client_id, forecast_update_requests.bank_client_id),
+            analysis_type = CASE WHEN EXCLUDED.priority > forecast_update_requests.priority
+                THEN EXCLUDED.analysis_type ELSE forecast_update_requests.analysis_type END,
+            priority = GREATEST(EXCLUDED.priority, forecast_update_requests.priority),
+            merged_count = forecast_update_requests.merged_count + 1
+    """;
+
+    private static final String TAKE_DUE_SQL = """
+        WITH due AS (
+            SELECT user_id FROM forecast_update_requests
+            WHERE due_at <= now()
+            ORDER BY due_at
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+        )
+        DELETE FROM forecast_update_requests r USING due
+        WHERE r.user_id = due.user_id
+        RETURNING r.user_id, r.bank_client_id, r.analysis_type, r.merged_count
+    """;
+
+    private final OutboxService outboxService;
+    private final UserFeatureService userFeatureService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter coalescedCounter;
+
+    @Value("${app.forecast-update.coalescing-window:2m}")
+    private Duration coalescingWindow;
+
+    public ForecastUpdatePublisher(OutboxService outboxService, UserFeatureService userFeatureService,
+                                   JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.outboxService = outboxService;
+        this.userFeatureService = userFeatureService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.coalescedCounter = Counter.builder("forecast.update.coalesced")
+                .description("Forecast update requests merged into an already pending one")
+                .register(meterRegistry);
+    }
+
+    @Transactional
+    public void publish(UserForecastUpdateEvent event) {
+        if (coalescingWindow.isZero()) {
+            attachFeatures(List.of(event));
+            outboxService.enqueue(TOPIC, event.getUserId().toString(), event);
+            return;
+        }
+        jdbcTemplate.update(UPSERT_SQL, toRow(event));
+    }
+
+    @Transactional
+    public int publishAll(Collection<UserForecastUpdateEvent> events) {
+        if (coalescingWindow.isZero()) {
+            attachFeatures(events);
+            return outboxService.enqueueAll(TOPIC, events, event -> event.getUserId().toString());
+        }
+
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (UserForecastUpdateEvent event : events) {
+            rows.add(toRow(event));
+        }
+        for (int i = 0; i < rows.size(); i += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows.subList(i, Math.min(i + BATCH_SIZE, rows.size())));
+        }
+        return rows.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.forecast-update.flush-interval-ms:1000}")
+    public void flushDueRequests() {
+        try {
+            Integer flushed;
+            do {
+                flushed = transactionTemplate.execute(status -> flushBatch());
+            } while (flushed != null && flushed == BATCH_SIZE);
+        } catch (Exception e) {
+            log.error("Failed to flush coalesced forecast update requests", e);
+        }
+    }
+
+    private int flushBatch() {
+        List<UserForecastUpdateEvent> events = new ArrayList<>();
+        long[] merged = {0};
+
+        jdbcTemplate.query(TAKE_DUE_SQL, rs -> {
+            events.add(UserForecastUpdateEvent.builder()
+                    .userId(rs.getObject("user_id", UUID.class))
+                    .bankClientId(rs.getString("bank_client_id"))
+                    .analysisType(rs.getString("analysis_type"))
+                    .timestamp(System.currentTimeMillis())
+                    .build());
+            merged[0] += rs.getInt("merged_count") - 1;
+        }, BATCH_SIZE);
+
+        if (!events.isEmpty()) {
+            attachFeatures(events);
+            outboxService.enqueueAll(TOPIC, events, event -> event.getUserId().toString());
+            coalescedCounter.increment(merged[0]);
+        }
+        return events.size();
+    }
+
+    // Признаки берутся в момент отправки, поэтому склеенный запрос получает самый свежий вектор
+    private void attachFeatures(Collection<UserForecastUpdateEvent> events) {
+        Map<UUID, UserMlFeatures> features = userFeatureService.getFeatures(
+                events.stream().map(UserForecastUpdateEvent::getUserId).collect(Collectors.toSet()));
+
+        for (UserForecastUpdateEvent event : events) {
+            UserMlFeatures row = features.get(event.getUserId());
+            if (row != null) {
+                event.setFeatureVersion(row.getVersion());
+                event.setFeatures(row.getFeatures());
+            }
+        }
+    }
+
+    private Object[] toRow(UserForecastUpdateEvent event) {
+        return new Object[]{
+                event.getUserId(),
+                event.getBankClientId(),
+                event.getAnalysisType(),
+                ForecastAnalysisType.priorityOf(event.getAnalysisType()),
+                coalescingWindow.toMillis() / 1000.0
+        };
+    }
+}
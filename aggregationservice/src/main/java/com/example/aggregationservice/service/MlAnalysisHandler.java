@@ -1,24 +1,41 @@
 package com.example.aggregationservice.service;
 
-import com.example.aggregationservice.client.UserServiceClient;
+import com.example.aggregationservice.config.MlFanoutProperties;
 import com.example.aggregationservice.dto.UserForecastUpdateEvent;
 import com.example.aggregationservice.model.ScheduledTask;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+/**
+ * Еженедельная рассылка WEEKLY_FORECAST волнами. Запуск — одна непартиционированная задача: после каждой
+ * волны та же строка возвращается в очередь с курсором в taskData, следующая волна идёт только когда
+ * очередь перед ML-сервисом ниже порога. Запуск считается завершённым после последней волны.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class MlAnalysisHandler implements TaskHandler {
 
-    private final UserGroupService userGroupService;
-    private final UserServiceClient userServiceClient;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private static final UUID START_CURSOR = new UUID(0L, 0L);
+
+    private final SchedulerMembershipService membershipService;
+    private final SchedulerMetrics schedulerMetrics;
+    private final UserDirectoryService userDirectoryService;
+    private final ForecastUpdatePublisher forecastUpdatePublisher;
+    private final ForecastBacklogService forecastBacklogService;
+    private final MlFanoutProperties properties;
+    private final MeterRegistry meterRegistry;
 
     @Override
     public String getSupportedTaskType() {
@@ -27,45 +44,111 @@ public class MlAnalysisHandler implements TaskHandler {
 
     @Override
     public void handle(ScheduledTask task) {
-        List<UUID> allUserIds = userGroupService.getAllActiveUserIds();
+        Map<String, Object> run = task.getTaskData() != null && task.getTaskData().containsKey("runId")
+                ? new HashMap<>(task.getTaskData())
+                : startRun(task.getTaskData());
+
+        // Если запуск всё же поставлен по партициям, порог и волна делятся между ними,
+        // чтобы суммарно не выйти за maxLag
+        int shares = membershipService.getTaskPartition(run) != null ? membershipService.getPartitionCount() : 1;
+        long maxLag = Math.max(properties.getMaxLag() / shares, 1);
+        int waveSize = Math.max(properties.getWaveSize() / shares, 1);
+
+        long backlog = forecastBacklogService.getBacklog();
+        run.put("lastBacklog", backlog);
+
+        if (backlog > maxLag) {
+            Counter.builder("ml.fanout.holds")
+                    .description("Waves postponed because the ML backlog was above the threshold")
+                    .register(meterRegistry)
+                    .increment();
+            log.info("ML fan-out {}: backlog {} above {}, holding off for {}",
+                    run.get("runId"), backlog, maxLag, properties.getHoldOff());
+            continueLater(task, run, properties.getHoldOff());
+            return;
+        }
+
+        Instant startedAt = Instant.now();
+        boolean exhausted = publishWave(run, waveSize);
+
+        log.info("ML fan-out {}: {} events queued, {} of {} users scanned",
+                run.get("runId"), run.get("sent"), run.get("scanned"), run.get("total"));
+
+        if (!exhausted) {
+            continueLater(task, run, properties.getWaveInterval());
+        } else {
+            task.setTaskData(run);
+            log.info("ML fan-out {} finished in {}", run.get("runId"),
+                    Duration.between(Instant.parse((String) run.get("startedAt")), startedAt));
+        }
+    }
 
-        int sentCount = 0;
+    // Публикует одну волну начиная с курсора; true, если активные пользователи закончились
+    private boolean publishWave(Map<String, Object> run, int waveSize) {
+        Instant startedAt = Instant.now();
+        UUID cursor = UUID.fromString((String) run.get("cursor"));
+        List<UserForecastUpdateEvent> events = new ArrayList<>();
+        long scanned = ((Number) run.get("scanned")).longValue();
+        boolean exhausted = false;
 
-        for (UUID userId : allUserIds) {
-            try {
-                String bankClientId = userServiceClient.getBankClientId(userId);
+        while (events.size() < waveSize) {
+            List<UUID> page = userDirectoryService.getActiveUserIdsAfter(cursor, waveSize);
+            if (page.isEmpty()) {
+                exhausted = true;
+                break;
+            }
+
+            cursor = page.get(page.size() - 1);
+            scanned += page.size();
+
+            List<UUID> userIds = membershipService.filterByTaskPartition(page, run);
+            Map<UUID, String> bankClientIds = userDirectoryService.getBankClientIds(userIds);
+            for (UUID userId : userIds) {
+                String bankClientId = bankClientIds.get(userId);
                 if (bankClientId == null) {
                     log.warn("No bankClientId for user: {}", userId);
                     continue;
                 }
 
-                UserForecastUpdateEvent event = UserForecastUpdateEvent.builder()
+                events.add(UserForecastUpdateEvent.builder()
                         .userId(userId)
                         .bankClientId(bankClientId)
                         .analysisType("WEEKLY_FORECAST")
                         .timestamp(System.currentTimeMillis())
-                        .build();
-
-                sendToKafka(userId, event);
-                sentCount++;
+                        .build());
+            }
 
-            } catch (Exception e) {
-                log.error("Failed to process user {} for ML analysis", userId, e);
+            if (page.size() < waveSize) {
+                exhausted = true;
+                break;
             }
         }
+
+        int sentCount = events.isEmpty() ? 0 : forecastUpdatePublisher.publishAll(events);
+
+        run.put("cursor", cursor.toString());
+        run.put("scanned", scanned);
+        run.put("sent", ((Number) run.get("sent")).longValue() + sentCount);
+        run.put("waves", ((Number) run.get("waves")).intValue() + 1);
+
+        schedulerMetrics.recordItems(getSupportedTaskType(), sentCount, Duration.between(startedAt, Instant.now()));
+        return exhausted;
     }
 
-    public void sendToKafka(UUID userId, UserForecastUpdateEvent event) {
-        try {
-            int partition = Math.abs(userId.hashCode()) % 10;
-            kafkaTemplate.send("user_forecast_update", partition, userId.toString(), event);
-        } catch (Exception e) {
-            log.error("Failed to send ML event for user {}: {}", userId, e.getMessage());
-        }
+    private Map<String, Object> startRun(Map<String, Object> taskData) {
+        Map<String, Object> run = taskData != null ? new HashMap<>(taskData) : new HashMap<>();
+        run.put("runId", UUID.randomUUID().toString());
+        run.put("startedAt", Instant.now().toString());
+        run.put("cursor", START_CURSOR.toString());
+        run.put("total", userDirectoryService.countActiveUsers());
+        run.put("scanned", 0L);
+        run.put("sent", 0L);
+        run.put("waves", 0);
+        return run;
     }
 
-    @Override
-    public boolean shouldDeleteAfterSuccess() {
-        return false;
+    private void continueLater(ScheduledTask task, Map<String, Object> run, Duration delay) {
+        task.setTaskData(run);
+        task.setContinueAt(Instant.now().plus(delay));
     }
-}
\ No newline at end of file
+}
@@ -1,12 +1,10 @@
 package com.example.aggregationservice.service;
 
 import com.example.aggregationservice.client.NotificationServiceClient;
-import com.example.aggregationservice.client.UserServiceClient;
 import com.example.aggregationservice.dto.CreateNotificationRequest;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import java.util.UUID;
@@ -17,11 +15,11 @@ import java.util.UUID;
 public class NotificationService {
 
     private final NotificationServiceClient notificationServiceClient;
-    private final UserServiceClient userServiceClient;
+    private final UserDirectoryService userDirectoryService;
 
     public void sendAccountsLoadedNotification(String bankClientId, String bankCode, int accountsCount) {
         try {
-            UUID userId = getUserIdFromUserService(bankClientId);
+            UUID userId = getUserId(bankClientId);
             if (userId == null) return;
 
             CreateNotificationRequest request = new CreateNotificationRequest();
@@ -36,19 +34,7 @@ public class NotificationService {
         }
     }
 
-    private UUID getUserIdFromUserService(String bankClientId) {
-        try {
-            ResponseEntity<UUID> response = userServiceClient.getUserIdByBankClientId(bankClientId);
-
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                return response.getBody();
-            } else {
-                log.warn("User not found for bankClientId: {}", bankClientId);
-                return null;
-            }
-        } catch (Exception e) {
-            log.error("Failed to get userId for {}: {}", bankClientId, e.getMessage());
-            return null;
-        }
+    private UUID getUserId(String bankClientId) {
+        return userDirectoryService.getUserId(bankClientId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,203 @@
+package com.example.aggregationservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Переносит события из outbox_events в Kafka крупными пачками в порядке id.
+ * Строки блокируются через SKIP LOCKED, поэтому релей можно запускать на всех инстансах. Порядок внутри
+ * ключа сохраняется: ключ в пачке берёт только один инстанс (advisory-лок транзакции), строка ждёт, пока
+ * более ранняя по тому же ключу на ретрае, а после первой ошибки по ключу его остаток в пачке не удаляется.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    public static final String EVENT_ID_HEADER = "outbox-event-id";
+
+    private static final int ADVISORY_LOCK_NAMESPACE = 0x46504f42;
+
+    private static final String SELECT_BATCH_SQL = """
+        SELECT e.id, e.topic, e.message_key, e.payload_type, e.payload::text AS payload, e.attempts, e.created_at
+        FROM outbox_events e
+        WHERE e.next_attempt_at <= now()
+          AND NOT EXISTS (
+              SELECT 1 FROM outbox_events p
+              WHERE p.topic = e.topic
+                AND p.message_key = e.message_key
+                AND p.id < e.id
+                AND p.next_attempt_at > now()
+          )
+          AND (e.message_key IS NULL OR pg_try_advisory_xact_lock(?, hashtext(e.topic || '/' || e.message_key)))
+        ORDER BY e.id
+        LIMIT ?
+        FOR UPDATE OF e SKIP LOCKED
+    """;
+    private static final String DELETE_SQL = "DELETE FROM outbox_events WHERE id = ?";
+    private static final String RESCHEDULE_SQL = """
+        UPDATE outbox_events
+        SET attempts = attempts + 1,
+            next_attempt_at = now() + make_interval(secs => ?),
+            last_error = ?
+        WHERE id = ?
+    """;
+
+    private record OutboxRow(long id, String topic, String key, String payloadType, String payload,
+                             int attempts, Instant createdAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    // Ожидание подтверждений на всю пачку: всё это время строки и ключи заблокированы транзакцией
+    private final long sendTimeoutMs;
+
+    @Value("${app.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.outbox.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${app.outbox.retry-backoff-seconds:5}")
+    private long retryBackoffSeconds;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                       KafkaTemplate<String, Object> kafkaTemplate, ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.outbox.send-timeout-ms:5000}") long sendTimeoutMs,
+                       @Value("${app.outbox.transaction-timeout-seconds:30}") int transactionTimeoutSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager(), transactionTemplate);
+        this.transactionTemplate.setTimeout(transactionTimeoutSeconds);
+        // Подтверждения, не успевшие за треть таймаута транзакции, уходят на ретрай, а не держат локи до отката
+        this.sendTimeoutMs = Math.min(sendTimeoutMs, transactionTimeoutSeconds * 1000L / 3);
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:500}")
+    public void relay() {
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                Integer relayed = transactionTemplate.execute(status -> relayBatch());
+                if (relayed == null || relayed < batchSize) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Outbox relay failed", e);
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxRow> rows = jdbcTemplate.query(SELECT_BATCH_SQL, (rs, rowNum) -> new OutboxRow(
+                rs.getLong("id"),
+                rs.getString("topic"),
+                rs.getString("message_key"),
+                rs.getString("payload_type"),
+                rs.getString("payload"),
+                rs.getInt("attempts"),
+                rs.getTimestamp("created_at").toInstant()), ADVISORY_LOCK_NAMESPACE, batchSize);
+
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        // Сначала отправляем всю пачку асинхронно, затем ждём подтверждений: продьюсер сам собирает батчи
+        List<CompletableFuture<SendResult<String, Object>>> results = new ArrayList<>(rows.size());
+        for (OutboxRow row : rows) {
+            results.add(send(row));
+        }
+        kafkaTemplate.flush();
+
+        List<Object[]> delivered = new ArrayList<>(rows.size());
+        List<Object[]> failed = new ArrayList<>();
+        Set<String> failedKeys = new HashSet<>();
+        int held = 0;
+        Instant now = Instant.now();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+
+        for (int i = 0; i < rows.size(); i++) {
+            OutboxRow row = rows.get(i);
+            String orderKey = row.key() != null ? row.topic() + "/" + row.key() : null;
+
+            // Более раннее событие ключа не ушло: это остаётся в таблице и будет отправлено повторно после него,
+            // даже если брокер его уже подтвердил (at-least-once, но последним у консьюмера окажется верный порядок)
+            if (orderKey != null && failedKeys.contains(orderKey)) {
+                held++;
+                continue;
+            }
+
+            try {
+                results.get(i).get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                delivered.add(new Object[]{row.id()});
+                counter("outbox.relay.published", row.topic()).increment();
+                Timer.builder("outbox.relay.lag")
+                        .description("Time from outbox insert until broker acknowledgement")
+                        .tag("topic", row.topic())
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(Duration.between(row.createdAt(), now));
+            } catch (Exception e) {
+                Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                long backoff = retryBackoffSeconds * (1L << Math.min(row.attempts(), 10));
+                failed.add(new Object[]{backoff, cause.getMessage(), row.id()});
+                counter("outbox.relay.failures", row.topic()).increment();
+                if (orderKey != null) {
+                    failedKeys.add(orderKey);
+                }
+            }
+        }
+
+        if (!delivered.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SQL, delivered);
+        }
+        if (!failed.isEmpty()) {
+            jdbcTemplate.batchUpdate(RESCHEDULE_SQL, failed);
+            log.warn("Outbox relay: {} of {} events failed and will be retried, {} held behind them",
+                    failed.size(), rows.size(), held);
+        }
+        return rows.size();
+    }
+
+    private CompletableFuture<SendResult<String, Object>> send(OutboxRow row) {
+        try {
+            Object payload = objectMapper.readValue(row.payload(), Class.forName(row.payloadType()));
+            ProducerRecord<String, Object> record = new ProducerRecord<>(row.topic(), row.key(), payload);
+            record.headers().add(EVENT_ID_HEADER, Long.toString(row.id()).getBytes(StandardCharsets.UTF_8));
+            return kafkaTemplate.send(record);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Counter counter(String name, String topic) {
+        return Counter.builder(name).tag("topic", topic).register(meterRegistry);
+    }
+}
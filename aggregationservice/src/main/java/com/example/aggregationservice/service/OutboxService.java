@@ -0,0 +1,58 @@
+package com.example.aggregationservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Запись событий в outbox_events в той же транзакции, что и бизнес-изменение. В Kafka их доставляет {@link OutboxRelay}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String INSERT_SQL = """
+        INSERT INTO outbox_events (topic, message_key, payload_type, payload)
+        VALUES (?, ?, ?, CAST(? AS jsonb))
+    """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Transactional
+    public void enqueue(String topic, String key, Object event) {
+        jdbcTemplate.update(INSERT_SQL, topic, key, event.getClass().getName(), toJson(event));
+    }
+
+    @Transactional
+    public <T> int enqueueAll(String topic, Collection<T> events, Function<T, String> keyExtractor) {
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (T event : events) {
+            rows.add(new Object[]{topic, keyExtractor.apply(event), event.getClass().getName(), toJson(event)});
+        }
+
+        for (int i = 0; i < rows.size(); i += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows.subList(i, Math.min(i + BATCH_SIZE, rows.size())));
+        }
+        return rows.size();
+    }
+
+    private String toJson(Object event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize outbox event " + event.getClass().getSimpleName(), e);
+        }
+    }
+}
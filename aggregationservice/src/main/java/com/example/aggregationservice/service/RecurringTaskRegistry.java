@@ -0,0 +1,174 @@
+package com.example.aggregationservice.service;
+
+import com.example.aggregationservice.config.SchedulingProperties;
+import com.example.aggregationservice.model.RecurringTaskDefinition;
+import com.example.aggregationservice.model.TaskRunHistory;
+import com.example.aggregationservice.model.enums.MisfirePolicy;
+import com.example.aggregationservice.repository.RecurringTaskDefinitionRepository;
+import com.example.aggregationservice.repository.ScheduledTaskRepository;
+import com.example.aggregationservice.repository.TaskRunHistoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Реестр периодических задач: одна строка на задачу, расписание берётся из cron.
+ * При срабатывании в scheduled_tasks ставится одноразовый запуск, который удаляется
+ * после завершения, а результат пишется в task_run_history.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecurringTaskRegistry {
+
+    private static final List<String> ACTIVE_STATUSES = List.of("PENDING", "PROCESSING");
+
+    private final RecurringTaskDefinitionRepository definitionRepository;
+    private final ScheduledTaskRepository taskRepository;
+    private final TaskRunHistoryRepository runHistoryRepository;
+    private final TaskSchedulerService taskSchedulerService;
+    private final SchedulerMembershipService membershipService;
+    private final SchedulingProperties schedulingProperties;
+
+    @Transactional
+    public RecurringTaskDefinition register(String name, String taskType, String cron,
+                                            Map<String, Object> taskData, MisfirePolicy misfirePolicy,
+                                            boolean enabled, boolean partitioned) {
+        CronExpression cronExpression = CronExpression.parse(cron);
+        Instant now = Instant.now();
+
+        RecurringTaskDefinition definition = definitionRepository.findByName(name)
+                .orElseGet(RecurringTaskDefinition::new);
+
+        boolean scheduleChanged = definition.getId() == null
+                || !cron.equals(definition.getCronExpression())
+                || !Boolean.TRUE.equals(definition.getEnabled())
+                || definition.getNextFireTime() == null;
+
+        definition.setName(name);
+        definition.setTaskType(taskType);
+        definition.setCronExpression(cron);
+        definition.setTaskData(taskData);
+        definition.setMisfirePolicy(misfirePolicy != null ? misfirePolicy : MisfirePolicy.FIRE_ONCE);
+        definition.setEnabled(enabled);
+        definition.setPartitioned(partitioned);
+        definition.setUpdatedAt(now);
+
+        if (scheduleChanged) {
+            definition.setNextFireTime(nextFireTime(cronExpression, now));
+        }
+
+        RecurringTaskDefinition saved = definitionRepository.save(definition);
+        log.info("Registered recurring task {} ({}), next fire at {}", name, cron, saved.getNextFireTime());
+        return saved;
+    }
+
+    @Transactional
+    public void retainOnly(Collection<String> names) {
+        Set<String> retained = new HashSet<>(names);
+
+        for (RecurringTaskDefinition definition : definitionRepository.findAll()) {
+            if (!retained.contains(definition.getName()) && Boolean.TRUE.equals(definition.getEnabled())) {
+                definition.setEnabled(false);
+                definition.setUpdatedAt(Instant.now());
+                definitionRepository.save(definition);
+                log.info("Disabled recurring task {}: no longer configured", definition.getName());
+            }
+        }
+    }
+
+    @Transactional
+    public int fireDueDefinitions() {
+        Instant now = Instant.now();
+        List<RecurringTaskDefinition> dueDefinitions = definitionRepository.lockDueDefinitions(now);
+
+        int fired = 0;
+
+        for (RecurringTaskDefinition definition : dueDefinitions) {
+            CronExpression cron;
+            try {
+                cron = CronExpression.parse(definition.getCronExpression());
+            } catch (IllegalArgumentException e) {
+                log.error("Invalid cron '{}' for recurring task {}, disabling it",
+                        definition.getCronExpression(), definition.getName());
+                definition.setEnabled(false);
+                definition.setUpdatedAt(now);
+                definitionRepository.save(definition);
+                continue;
+            }
+
+            Instant fireTime = definition.getNextFireTime();
+            boolean misfired = fireTime.plus(schedulingProperties.getMisfireGracePeriod()).isBefore(now);
+
+            if (misfired && definition.getMisfirePolicy() == MisfirePolicy.SKIP) {
+                log.warn("Skipping misfired run of {} scheduled for {}", definition.getName(), fireTime);
+                recordSkippedRun(definition, fireTime, "Misfired: scheduled for " + fireTime);
+            } else if (taskRepository.existsByDefinitionIdAndStatusIn(definition.getId(), ACTIVE_STATUSES)) {
+                log.warn("Previous run of {} is still in progress, skipping fire at {}", definition.getName(), fireTime);
+                recordSkippedRun(definition, fireTime, "Previous run still in progress");
+            } else {
+                enqueueRuns(definition, now);
+                fired++;
+            }
+
+            // Пропущенные срабатывания схлопываются: следующее считается от текущего момента
+            definition.setLastFireTime(fireTime);
+            definition.setNextFireTime(nextFireTime(cron, now));
+            definition.setUpdatedAt(now);
+            definitionRepository.save(definition);
+        }
+
+        return fired;
+    }
+
+    // Партиционированная задача ставится по одному запуску на партицию,
+    // каждый экземпляр забирает только запуски своих партиций
+    private void enqueueRuns(RecurringTaskDefinition definition, Instant now) {
+        if (!Boolean.TRUE.equals(definition.getPartitioned())) {
+            taskSchedulerService.scheduleRecurringRun(definition, now, null);
+            return;
+        }
+
+        for (int partition = 0; partition < membershipService.getPartitionCount(); partition++) {
+            taskSchedulerService.scheduleRecurringRun(definition, now, partition);
+        }
+    }
+
+    @Transactional
+    public int pruneHistory() {
+        Instant cutoff = Instant.now().minus(schedulingProperties.getHistoryRetention());
+        int deleted = runHistoryRepository.deleteFinishedBefore(cutoff);
+        if (deleted > 0) {
+            log.info("Pruned {} task run history rows finished before {}", deleted, cutoff);
+        }
+        return deleted;
+    }
+
+    private Instant nextFireTime(CronExpression cron, Instant from) {
+        ZonedDateTime next = cron.next(from.atZone(schedulingProperties.getZoneId()));
+        return next != null ? next.toInstant() : null;
+    }
+
+    private void recordSkippedRun(RecurringTaskDefinition definition, Instant fireTime, String reason) {
+        TaskRunHistory run = new TaskRunHistory();
+        run.setDefinitionId(definition.getId());
+        run.setTaskType(definition.getTaskType());
+        run.setTaskName(definition.getName());
+        run.setStatus("SKIPPED");
+        run.setScheduledTime(fireTime);
+        run.setFinishedAt(Instant.now());
+        run.setInstanceId(taskSchedulerService.getInstanceId());
+        run.setError(reason);
+        runHistoryRepository.save(run);
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.aggregationservice.service;
+
+import com.example.aggregationservice.config.SchedulingProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.net.InetAddress;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Членство экземпляров планировщика в кластере и владение партициями работы.
+ * Экземпляры пишут heartbeat в scheduler_instances, партиции делятся между живыми
+ * участниками и закрепляются сессионными pg_try_advisory_lock на выделенном соединении.
+ */
+@Slf4j
+@Service
+public class SchedulerMembershipService {
+
+    private static final int ADVISORY_LOCK_NAMESPACE = 0x46505331;
+
+    private static final String HEARTBEAT_SQL = """
+        INSERT INTO scheduler_instances (instance_id, host, started_at, last_heartbeat)
+        VALUES (?, ?, now(), now())
+        ON CONFLICT (instance_id) DO UPDATE SET last_heartbeat = now()
+    """;
+
+    private static final String EXPIRE_SQL = """
+        DELETE FROM scheduler_instances
+        WHERE last_heartbeat < now() - (? * interval '1 millisecond')
+    """;
+
+    private static final String LIVE_MEMBERS_SQL = """
+        SELECT instance_id FROM scheduler_instances
+        WHERE last_heartbeat >= now() - (? * interval '1 millisecond')
+        ORDER BY instance_id
+    """;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final SchedulingProperties schedulingProperties;
+
+    @Getter
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Set<Integer> ownedPartitions = ConcurrentHashMap.newKeySet();
+    private volatile List<String> liveMembers = List.of();
+    private Connection lockConnection;
+
+    public SchedulerMembershipService(DataSource dataSource, JdbcTemplate jdbcTemplate,
+                                      SchedulingProperties schedulingProperties) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.schedulingProperties = schedulingProperties;
+    }
+
+    public int getPartitionCount() {
+        return schedulingProperties.getCluster().getPartitions();
+    }
+
+    public int partitionOf(UUID userId) {
+        return Math.floorMod(userId.hashCode(), getPartitionCount());
+    }
+
+    public List<UUID> filterByTaskPartition(List<UUID> userIds, Map<String, Object> taskData) {
+        if (getTaskPartition(taskData) == null) {
+            return userIds;
+        }
+        return userIds.stream()
+                .filter(userId -> isInTaskPartition(userId, taskData))
+                .collect(Collectors.toList());
+    }
+
+    public boolean isInTaskPartition(UUID userId, Map<String, Object> taskData) {
+        Integer partition = getTaskPartition(taskData);
+        return partition == null || partitionOf(userId) == partition;
+    }
+
+    public Integer getTaskPartition(Map<String, Object> taskData) {
+        Object partition = taskData != null ? taskData.get("partition") : null;
+        return partition instanceof Number number ? number.intValue() : null;
+    }
+
+    public Set<Integer> getOwnedPartitions() {
+        if (!schedulingProperties.getCluster().isEnabled()) {
+            return allPartitions();
+        }
+        return Collections.unmodifiableSet(ownedPartitions);
+    }
+
+    public boolean ownsPartition(int partition) {
+        return getOwnedPartitions().contains(partition);
+    }
+
+    public List<String> getLiveMembers() {
+        return liveMembers;
+    }
+
+    @Scheduled(fixedDelayString = "${app.scheduling.cluster.heartbeat-interval-ms:10000}")
+    public synchronized void heartbeat() {
+        if (!schedulingProperties.getCluster().isEnabled()) {
+            return;
+        }
+
+        try {
+            long timeoutMs = schedulingProperties.getCluster().getMemberTimeoutMs();
+
+            jdbcTemplate.update(HEARTBEAT_SQL, instanceId, resolveHost());
+            int expired = jdbcTemplate.update(EXPIRE_SQL, timeoutMs);
+            if (expired > 0) {
+                log.info("Removed {} expired scheduler instances", expired);
+            }
+
+            List<String> members = jdbcTemplate.queryForList(LIVE_MEMBERS_SQL, String.class, timeoutMs);
+            if (!members.equals(liveMembers)) {
+                log.info("Scheduler membership changed: {} live instances", members.size());
+            }
+            liveMembers = members;
+
+            rebalance(members);
+
+        } catch (Exception e) {
+            log.error("Scheduler heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    private void rebalance(List<String> members) throws SQLException {
+        Set<Integer> target = targetPartitions(members);
+        Connection connection = ensureLockConnection();
+
+        for (Integer partition : new ArrayList<>(ownedPartitions)) {
+            if (!target.contains(partition)) {
+                unlock(connection, partition);
+                ownedPartitions.remove(partition);
+            }
+        }
+
+        for (Integer partition : target) {
+            if (!ownedPartitions.contains(partition) && tryLock(connection, partition)) {
+                ownedPartitions.add(partition);
+            }
+        }
+
+        log.debug("Instance {} owns partitions {}", instanceId, ownedPartitions);
+    }
+
+    // Партиция p достаётся участнику с индексом p % N в отсортированном списке живых экземпляров
+    private Set<Integer> targetPartitions(List<String> members) {
+        int index = members.indexOf(instanceId);
+        if (index < 0) {
+            return Set.of();
+        }
+
+        int memberCount = members.size();
+        return IntStream.range(0, getPartitionCount())
+                .filter(partition -> partition % memberCount == index)
+                .boxed()
+                .collect(Collectors.toSet());
+    }
+
+    private Connection ensureLockConnection() throws SQLException {
+        if (lockConnection != null && lockConnection.isValid(2)) {
+            return lockConnection;
+        }
+
+        if (lockConnection != null) {
+            log.warn("Advisory lock connection lost, partitions {} released", ownedPartitions);
+            closeQuietly(lockConnection);
+        }
+
+        // Сессионные advisory-локи живут столько же, сколько соединение
+        ownedPartitions.clear();
+        lockConnection = dataSource.getConnection();
+        lockConnection.setAutoCommit(true);
+        return lockConnection;
+    }
+
+    private boolean tryLock(Connection connection, int partition) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT pg_try_advisory_lock(?, ?)")) {
+            ps.setInt(1, ADVISORY_LOCK_NAMESPACE);
+            ps.setInt(2, partition);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private void unlock(Connection connection, int partition) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT pg_advisory_unlock(?, ?)")) {
+            ps.setInt(1, ADVISORY_LOCK_NAMESPACE);
+            ps.setInt(2, partition);
+            ps.executeQuery().close();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void leave() {
+        if (!schedulingProperties.getCluster().isEnabled()) {
+            return;
+        }
+
+        try {
+            if (lockConnection != null) {
+                for (Integer partition : ownedPartitions) {
+                    unlock(lockConnection, partition);
+                }
+            }
+            jdbcTemplate.update("DELETE FROM scheduler_instances WHERE instance_id = ?", instanceId);
+        } catch (Exception e) {
+            log.warn("Failed to leave scheduler cluster cleanly: {}", e.getMessage());
+        } finally {
+            ownedPartitions.clear();
+            closeQuietly(lockConnection);
+            lockConnection = null;
+        }
+    }
+
+    private Set<Integer> allPartitions() {
+        return IntStream.range(0, getPartitionCount()).boxed().collect(Collectors.toSet());
+    }
+
+    private String resolveHost() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+
+    private void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Failed to close advisory lock connection: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.aggregationservice.service;
+
+import com.example.aggregationservice.repository.ScheduledTaskRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Метрики планировщика задач в разрезе task_type: очередь, задержки, длительность и пропускная способность.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SchedulerMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final ScheduledTaskRepository taskRepository;
+
+    private final Map<String, AtomicLong> dueDepth = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> oldestDueLagSeconds = new ConcurrentHashMap<>();
+
+    @Scheduled(fixedDelayString = "${app.scheduling.metrics-refresh-ms:15000}")
+    public void refreshQueueGauges() {
+        try {
+            Instant now = Instant.now();
+            Set<String> seen = new HashSet<>();
+
+            for (Object[] row : taskRepository.summarizeDueByTaskType(now)) {
+                String taskType = (String) row[0];
+                Instant oldest = (Instant) row[2];
+                seen.add(taskType);
+
+                dueDepthGauge(taskType).set(((Number) row[1]).longValue());
+                oldestDueLagGauge(taskType).set(oldest != null ? Duration.between(oldest, now).getSeconds() : 0);
+            }
+
+            dueDepth.forEach((taskType, value) -> {
+                if (!seen.contains(taskType)) {
+                    value.set(0);
+                    oldestDueLagSeconds.get(taskType).set(0);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to refresh scheduler queue metrics: {}", e.getMessage());
+        }
+    }
+
+    public void recordClaim(String taskType, Instant scheduledTime, Instant claimedAt) {
+        if (scheduledTime == null) {
+            return;
+        }
+        Duration latency = Duration.between(scheduledTime, claimedAt);
+        Timer.builder("scheduler.task.claim.latency")
+                .description("Time from scheduled_time until an instance claimed the task")
+                .tag("task_type", taskType)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(latency.isNegative() ? Duration.ZERO : latency);
+    }
+
+    public Timer.Sample startExecution() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void recordExecution(Timer.Sample sample, String taskType, String outcome) {
+        sample.stop(Timer.builder("scheduler.task.duration")
+                .description("Handler execution time per task")
+                .tag("task_type", taskType)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    public void recordRetry(String taskType) {
+        Counter.builder("scheduler.task.retries")
+                .tag("task_type", taskType)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordFailure(String taskType) {
+        Counter.builder("scheduler.task.failures")
+                .description("Tasks that exhausted their retries")
+                .tag("task_type", taskType)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // Количество обработанных элементов (пользователей) за прогон и темп прогона в элементах/сек
+    public void recordItems(String taskType, int items, Duration elapsed) {
+        Counter.builder("scheduler.handler.items")
+                .tag("task_type", taskType)
+                .register(meterRegistry)
+                .increment(items);
+
+        double seconds = elapsed.toMillis() / 1000.0;
+        if (items > 0 && seconds > 0) {
+            DistributionSummary.builder("scheduler.handler.throughput")
+                    .description("Items per second of a single handler run")
+                    .tag("task_type", taskType)
+                    .register(meterRegistry)
+                    .record(items / seconds);
+        }
+    }
+
+    private AtomicLong dueDepthGauge(String taskType) {
+        return dueDepth.computeIfAbsent(taskType, type -> {
+            AtomicLong value = new AtomicLong();
+            Gauge.builder("scheduler.tasks.due", value, AtomicLong::get)
+                    .description("Due but unclaimed tasks")
+                    .tag("task_type", type)
+                    .register(meterRegistry);
+            return value;
+        });
+    }
+
+    private AtomicLong oldestDueLagGauge(String taskType) {
+        return oldestDueLagSeconds.computeIfAbsent(taskType, type -> {
+            AtomicLong value = new AtomicLong();
+            Gauge.builder("scheduler.tasks.oldest.due.lag", value, AtomicLong::get)
+                    .description("Age of the oldest due but unclaimed task")
+                    .baseUnit("seconds")
+                    .tag("task_type", type)
+                    .register(meterRegistry);
+            return value;
+        });
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.aggregationservice.service;
+
+import com.example.aggregationservice.config.SyncProperties;
+import com.example.aggregationservice.model.UserSyncState;
+import com.example.aggregationservice.repository.UserSyncStateRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Планирует синхронизацию пользователей по наблюдаемой активности: активных чаще, неактивных с экспоненциальной паузой.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SyncPriorityService {
+
+    private static final int MAX_BACKOFF_EXPONENT = 16;
+    private static final double SECONDS_PER_DAY = 86400.0;
+
+    private final UserSyncStateRepository syncStateRepository;
+    private final SyncProperties syncProperties;
+
+    /**
+     * Отбирает пользователей для очередного прогона: сначала просроченные по next_sync_at,
+     * затем ещё ни разу не синхронизированные пользователи текущего слота.
+     */
+    @Transactional(readOnly = true)
+    public List<UUID> selectUsersToSync(List<UUID> slotUsers, int limit, Predicate<UUID> filter) {
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        int scanLimit = limit * Math.max(1, syncProperties.getCandidateScanFactor());
+        List<UUID> selected = new ArrayList<>(limit);
+
+        for (UUID userId : syncStateRepository.findDueUserIds(Instant.now(), scanLimit)) {
+            if (selected.size() >= limit) {
+                return selected;
+            }
+            if (filter.test(userId)) {
+                selected.add(userId);
+            }
+        }
+
+        if (slotUsers.isEmpty() || selected.size() >= limit) {
+            return selected;
+        }
+
+        Set<UUID> known = new HashSet<>(syncStateRepository.findKnownUserIds(slotUsers));
+        for (UUID userId : slotUsers) {
+            if (selected.size() >= limit) {
+                break;
+            }
+            if (!known.contains(userId) && filter.test(userId)) {
+                selected.add(userId);
+            }
+        }
+
+        return selected;
+    }
+
+    @Transactional(readOnly = true)
+    public LocalDateTime getSyncWindowStart(UUID userId) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime earliest = now.minus(syncProperties.getMaxWindow());
+
+        return syncStateRepository.findById(userId)
+                .map(UserSyncState::getLastSyncAt)
+                .map(lastSync -> LocalDateTime.ofInstant(lastSync, ZoneId.systemDefault())
+                        .minus(syncProperties.getWindowOverlap()))
+                .map(start -> start.isBefore(earliest) ? earliest : start)
+                .orElse(now.minusDays(1));
+    }
+
+    // Отдельная транзакция: сбой учёта не должен откатывать сохранённые транзакции
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void recordIngestion(UUID userId, String bankClientId, int newTransactions,
+                                LocalDateTime fromDate, LocalDateTime toDate) {
+        Instant now = Instant.now();
+        UserSyncState state = syncStateRepository.findById(userId).orElseGet(() -> {
+            UserSyncState created = new UserSyncState();
+            created.setUserId(userId);
+            return created;
+        });
+
+        double windowDays = Math.max(Duration.between(fromDate, toDate).getSeconds(), 3600) / SECONDS_PER_DAY;
+        double observedRate = newTransactions / windowDays;
+        double alpha = syncProperties.getRateSmoothing();
+
+        state.setTxRatePerDay(state.getLastSyncAt() == null
+                ? observedRate
+                : alpha * observedRate + (1 - alpha) * state.getTxRatePerDay());
+
+        if (newTransactions > 0) {
+            state.setEmptySyncs(0);
+            state.setLastChangeAt(now);
+        } else {
+            state.setEmptySyncs(state.getEmptySyncs() + 1);
+        }
+
+        if (bankClientId != null) {
+            state.setBankClientId(bankClientId);
+        }
+        state.setLastSyncAt(now);
+        state.setNextSyncAt(now.plus(nextInterval(state)));
+        state.setUpdatedAt(now);
+        syncStateRepository.save(state);
+
+        log.debug("User {} synced: {} new, rate {}/day, next sync at {}",
+                userId, newTransactions, String.format("%.2f", state.getTxRatePerDay()), state.getNextSyncAt());
+    }
+
+    // Синхронизация не дошла до банка: last_sync_at остаётся на месте, чтобы окно перезапросилось целиком,
+    // и пустой она не считается, иначе сбой банка уводил бы пользователя в backoff
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void recordFailure(UUID userId, String bankClientId) {
+        Instant now = Instant.now();
+        UserSyncState state = syncStateRepository.findById(userId).orElseGet(() -> {
+            UserSyncState created = new UserSyncState();
+            created.setUserId(userId);
+            return created;
+        });
+
+        if (bankClientId != null) {
+            state.setBankClientId(bankClientId);
+        }
+        state.setNextSyncAt(now.plus(syncProperties.getFailureRetryInterval()));
+        state.setUpdatedAt(now);
+        syncStateRepository.save(state);
+
+        log.debug("User {} sync failed, retry at {}", userId, state.getNextSyncAt());
+    }
+
+    private Duration nextInterval(UserSyncState state) {
+        double defaultSeconds = syncProperties.getDefaultInterval().getSeconds();
+        double baseSeconds = state.getTxRatePerDay() > 0
+                ? Math.min(syncProperties.getTargetNewTransactions() / state.getTxRatePerDay() * SECONDS_PER_DAY,
+                        defaultSeconds)
+                : defaultSeconds;
+
+        double seconds = baseSeconds * Math.pow(2, Math.min(state.getEmptySyncs(), MAX_BACKOFF_EXPONENT));
+        seconds = Math.max(seconds, syncProperties.getMinInterval().getSeconds());
+        seconds = Math.min(seconds, syncProperties.getMaxInterval().getSeconds());
+        return Duration.ofSeconds((long) seconds);
+    }
+}
@@ -1,17 +1,24 @@
 package com.example.aggregationservice.service;
 
+import com.example.aggregationservice.model.RecurringTaskDefinition;
 import com.example.aggregationservice.model.ScheduledTask;
+import com.example.aggregationservice.model.TaskRunHistory;
 import com.example.aggregationservice.repository.ScheduledTaskRepository;
+import com.example.aggregationservice.repository.TaskRunHistoryRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Slf4j
@@ -20,12 +27,36 @@ import java.util.UUID;
 public class TaskSchedulerService {
 
     private final ScheduledTaskRepository taskRepository;
+    private final TaskRunHistoryRepository runHistoryRepository;
+    private final SchedulerMembershipService membershipService;
+    private final SchedulerMetrics schedulerMetrics;
     private final ObjectMapper objectMapper;
 
-    private final String instanceId = UUID.randomUUID().toString();
+    public String getInstanceId() {
+        return membershipService.getInstanceId();
+    }
 
     @Transactional
     public ScheduledTask scheduleTask(String taskType, String taskName, Map<String, Object> taskData, Instant scheduledTime) {
+        return scheduleTask(taskType, taskName, taskData, scheduledTime, null, null);
+    }
+
+    @Transactional
+    public ScheduledTask scheduleRecurringRun(RecurringTaskDefinition definition, Instant scheduledTime, Integer partition) {
+        Map<String, Object> taskData = definition.getTaskData() != null
+                ? new HashMap<>(definition.getTaskData())
+                : new HashMap<>();
+
+        if (partition != null) {
+            taskData.put("partition", partition);
+        }
+
+        return scheduleTask(definition.getTaskType(), definition.getName(), taskData, scheduledTime,
+                definition.getId(), partition);
+    }
+
+    private ScheduledTask scheduleTask(String taskType, String taskName, Map<String, Object> taskData,
+                                       Instant scheduledTime, UUID definitionId, Integer partition) {
         try {
 
 
@@ -34,6 +65,8 @@ public class TaskSchedulerService {
             task.setTaskName(taskName);
             task.setTaskData(taskData);
             task.setScheduledTime(scheduledTime);
+            task.setDefinitionId(definitionId);
+            task.setPartitionKey(partition);
 
             ScheduledTask saved = taskRepository.save(task);
 
@@ -47,39 +80,73 @@ public class TaskSchedulerService {
     @Transactional
     public void processDueTasks(TaskHandler handler) {
         Instant now = Instant.now();
-        List<ScheduledTask> dueTasks = taskRepository.findDueTasks(now);
+        List<ScheduledTask> dueTasks = taskRepository.findDueTasksForPartitions(now, claimablePartitions());
 
         for (ScheduledTask task : dueTasks) {
             if (!task.getTaskType().equals(handler.getSupportedTaskType())) {
                 continue;
             }
 
-            int locked = taskRepository.lockTask(task.getId(), instanceId, now);
+            int locked = taskRepository.lockTask(task.getId(), getInstanceId(), now);
             if (locked > 0) {
+                schedulerMetrics.recordClaim(task.getTaskType(), task.getScheduledTime(), now);
+                Timer.Sample execution = schedulerMetrics.startExecution();
                 try {
                     handler.handle(task);
-
-                    if (handler.shouldDeleteAfterSuccess()) {
+                    schedulerMetrics.recordExecution(execution, task.getTaskType(), "success");
+
+                    if (task.getContinueAt() != null) {
+                        // Запуск продолжается: строка остаётся активной, поэтому повторное срабатывание cron
+                        // будет пропущено, а в историю запуск попадёт только после последнего шага
+                        task.setScheduledTime(task.getContinueAt());
+                        task.setStatus("PENDING");
+                        task.setRetryCount(0);
+                        task.setLockedBy(null);
+                        task.setLockedAt(null);
+                        task.setUpdatedAt(Instant.now());
+                        taskRepository.save(task);
+                    } else if (task.getDefinitionId() != null) {
+                        recordRun(task, "COMPLETED", now, null);
+                        taskRepository.delete(task);
+                    } else if (handler.shouldDeleteAfterSuccess()) {
                         taskRepository.delete(task);
                     } else {
+                        task.setStatus("COMPLETED");
+                        task.setUpdatedAt(Instant.now());
                         taskRepository.save(task);
                     }
 
                 } catch (Exception e) {
                     log.error("Task failed: {}", task.getTaskName(), e);
-                    handleTaskFailure(task, e);
+                    schedulerMetrics.recordExecution(execution, task.getTaskType(), "error");
+                    handleTaskFailure(task, e, now);
                 }
             }
         }
     }
 
-    private void handleTaskFailure(ScheduledTask task, Exception e) {
+    // Пустой IN недопустим, поэтому без своих партиций берём только задачи без partition_key
+    private Collection<Integer> claimablePartitions() {
+        Set<Integer> owned = membershipService.getOwnedPartitions();
+        return owned.isEmpty() ? List.of(-1) : owned;
+    }
+
+    private void handleTaskFailure(ScheduledTask task, Exception e, Instant startedAt) {
         task.setRetryCount(task.getRetryCount() + 1);
 
         if (task.getRetryCount() >= task.getMaxRetries()) {
+            schedulerMetrics.recordFailure(task.getTaskType());
+
+            if (task.getDefinitionId() != null) {
+                recordRun(task, "FAILED", startedAt, e.getMessage());
+                taskRepository.delete(task);
+                return;
+            }
+
             task.setStatus("FAILED");
             task.setLastError(e.getMessage());
         } else {
+            schedulerMetrics.recordRetry(task.getTaskType());
             Instant retryTime = Instant.now().plusSeconds(300 * task.getRetryCount());
             task.setScheduledTime(retryTime);
             task.setStatus("PENDING");
@@ -90,6 +157,22 @@ public class TaskSchedulerService {
         taskRepository.save(task);
     }
 
+    private void recordRun(ScheduledTask task, String status, Instant startedAt, String error) {
+        TaskRunHistory run = new TaskRunHistory();
+        run.setDefinitionId(task.getDefinitionId());
+        run.setPartitionKey(task.getPartitionKey());
+        run.setTaskType(task.getTaskType());
+        run.setTaskName(task.getTaskName());
+        run.setStatus(status);
+        run.setScheduledTime(task.getScheduledTime());
+        run.setStartedAt(startedAt);
+        run.setFinishedAt(Instant.now());
+        run.setRetryCount(task.getRetryCount());
+        run.setInstanceId(getInstanceId());
+        run.setError(error);
+        runHistoryRepository.save(run);
+    }
+
     @Transactional
     public void deleteTask(UUID taskId) {
         try {
@@ -109,4 +192,16 @@ public class TaskSchedulerService {
             log.error("Failed to delete tasks by type and name: {}", e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @Transactional
+    public void deleteLegacyRecurringTasks(String taskType, String taskNamePattern) {
+        try {
+            int deleted = taskRepository.deleteLegacyByTaskTypeAndNamePattern(taskType, taskNamePattern);
+            if (deleted > 0) {
+                log.info("Removed {} legacy {} rows matching {}", deleted, taskType, taskNamePattern);
+            }
+        } catch (Exception e) {
+            log.error("Failed to delete legacy {} tasks: {}", taskType, e.getMessage());
+        }
+    }
+}
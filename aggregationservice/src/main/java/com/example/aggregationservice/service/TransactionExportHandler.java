@@ -1,16 +1,16 @@
 package com.example.aggregationservice.service;
 
-import com.example.aggregationservice.client.UserServiceClient;
+import com.example.aggregationservice.config.SyncProperties;
 import com.example.aggregationservice.dto.UserForecastUpdateEvent;
 import com.example.aggregationservice.model.Account;
-import com.example.aggregationservice.model.enums.TimeGroup;
 import com.example.aggregationservice.model.ScheduledTask;
 import com.example.aggregationservice.repository.AccountRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -22,10 +22,14 @@ import java.util.UUID;
 public class TransactionExportHandler implements TaskHandler {
 
     private final UserGroupService userGroupService;
-    private final UserServiceClient userServiceClient;
+    private final SchedulerMembershipService membershipService;
+    private final SchedulerMetrics schedulerMetrics;
+    private final UserDirectoryService userDirectoryService;
     private final TransactionService transactionService;
+    private final SyncPriorityService syncPriorityService;
+    private final SyncProperties syncProperties;
     private final AccountRepository accountRepository;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ForecastUpdatePublisher forecastUpdatePublisher;
 
     @Override
     public String getSupportedTaskType() {
@@ -35,42 +39,68 @@ public class TransactionExportHandler implements TaskHandler {
     @Override
     public void handle(ScheduledTask task) {
         Map<String, Object> taskData = task.getTaskData();
-        String groupCode = (String) taskData.get("groupCode");
-        TimeGroup timeGroup = TimeGroup.valueOf(groupCode);
+        Object slot = taskData.get("slot");
+        Object slotCount = taskData.get("slotCount");
 
-        List<UUID> userIds = userGroupService.getUserIdsByTimeGroup(timeGroup);
+        if (!(slot instanceof Number) || !(slotCount instanceof Number)) {
+            log.warn("Skipping export task {} without slot assignment", task.getTaskName());
+            return;
+        }
+
+        if (((Number) slotCount).intValue() != userGroupService.getExportSlotCount()) {
+            log.warn("Skipping export task {}: planned for {} slots, configured {}",
+                    task.getTaskName(), slotCount, userGroupService.getExportSlotCount());
+            return;
+        }
 
+        // Слот-прогоны служат тактом: каждый забирает свою долю суточного бюджета из общей очереди
+        int budget = syncProperties.getDailyBudget() / ((Number) slotCount).intValue();
+        if (membershipService.getTaskPartition(taskData) != null) {
+            budget /= membershipService.getPartitionCount();
+        }
+
+        List<UUID> userIds = syncPriorityService.selectUsersToSync(
+                userGroupService.getUserIdsByExportSlot(((Number) slot).intValue()),
+                Math.max(budget, 1),
+                userId -> membershipService.isInTaskPartition(userId, taskData));
+
+        Instant startedAt = Instant.now();
+        Map<UUID, String> bankClientIds = userDirectoryService.getBankClientIds(userIds);
         int successCount = 0;
 
         for (UUID userId : userIds) {
             try {
-                exportUserTransactions(userId);
+                exportUserTransactions(userId, bankClientIds.get(userId));
                 successCount++;
 
             } catch (Exception e) {
                 log.error("Failed for user: {}", userId, e);
             }
         }
+
+        schedulerMetrics.recordItems(getSupportedTaskType(), successCount,
+                Duration.between(startedAt, Instant.now()));
     }
 
-    public void exportUserTransactions(UUID userId) {
-        String bankClientId = userServiceClient.getBankClientId(userId);
+    public void exportUserTransactions(UUID userId, String bankClientId) {
+        LocalDateTime fromDate = syncPriorityService.getSyncWindowStart(userId);
+        LocalDateTime toDate = LocalDateTime.now();
+
         if (bankClientId == null) {
             log.warn("No bankClientId for user: {}", userId);
+            syncPriorityService.recordIngestion(userId, null, 0, fromDate, toDate);
             return;
         }
 
         List<Account> accounts = accountRepository.findActiveAccountsByBankClientId(bankClientId);
         if (accounts.isEmpty()) {
+            syncPriorityService.recordIngestion(userId, bankClientId, 0, fromDate, toDate);
             return;
         }
 
         try {
-            LocalDateTime yesterday = LocalDateTime.now().minusDays(1);
-            LocalDateTime today = LocalDateTime.now();
-
             int transactionsCount = transactionService.exportTransactionsForPeriod(
-                    bankClientId, yesterday, today);
+                    userId, bankClientId, fromDate, toDate);
 
             if (transactionsCount > 0) {
                 sendToMlService(userId, bankClientId, "DAILY_UPDATE", accounts.size());
@@ -90,8 +120,7 @@ public class TransactionExportHandler implements TaskHandler {
                     .timestamp(System.currentTimeMillis())
                     .build();
 
-            int partition = Math.abs(userId.hashCode()) % 10;
-            kafkaTemplate.send("user_forecast_update", partition, userId.toString(), event);
+            forecastUpdatePublisher.publish(event);
 
         } catch (Exception e) {
             log.error("Failed to send ML update for user {}: {}", userId, e.getMessage());
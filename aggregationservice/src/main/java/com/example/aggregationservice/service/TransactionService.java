@@ -1,6 +1,6 @@
 package com.example.aggregationservice.service;
 
-import com.example.aggregationservice.client.UserServiceClient;
+import com.example.aggregationservice.dto.TransactionChangeEvent;
 import com.example.aggregationservice.model.Account;
 import com.example.aggregationservice.model.Bank;
 import com.example.aggregationservice.model.Transaction;
@@ -12,7 +12,6 @@ import com.example.aggregationservice.repository.TransactionRepository;
 import com.example.aggregationservice.repository.UserConsentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -38,10 +37,14 @@ public class TransactionService {
     private final BankAuthService bankAuthService;
     private final ConsentEncryptionService encryptionService;
     private final BankRepository bankRepository;
-    private final UserServiceClient userServiceClient;
+    private final UserDirectoryService userDirectoryService;
+    private final SyncPriorityService syncPriorityService;
+    private final OutboxService outboxService;
+    private final UserFeatureService userFeatureService;
     private final JdbcTemplate jdbcTemplate;
 
     private static final int BATCH_SIZE = 100;
+    public static final String CHANGES_TOPIC = "transaction_export_events";
     private static final String INSERT_SQL = """
         INSERT INTO transactions (
             id, account_id, user_id, bank_client_id, external_transaction_id,
@@ -60,6 +63,18 @@ public class TransactionService {
 
     @Transactional
     public int exportTransactionsForPeriod(String bankClientId, LocalDateTime fromDate, LocalDateTime toDate) {
+        UUID userId = getUserIdByBankClientId(bankClientId);
+        if (userId == null) {
+            log.warn("Cannot export transactions: user not found for bankClientId: {}", bankClientId);
+            return 0;
+        }
+        return exportTransactionsForPeriod(userId, bankClientId, fromDate, toDate);
+    }
+
+    // Для массовых прогонов, где userId уже известен и повторный запрос в user-service не нужен
+    @Transactional
+    public int exportTransactionsForPeriod(UUID userId, String bankClientId,
+                                           LocalDateTime fromDate, LocalDateTime toDate) {
         // ✅ Оптимизация: один запрос для аккаунтов и консентов
         List<Account> accounts = accountRepository.findActiveAccountsByBankClientId(bankClientId);
         List<UserConsent> activeConsents = userConsentRepository.findByBankClientIdAndStatus(
@@ -67,6 +82,7 @@ public class TransactionService {
 
         if (accounts.isEmpty() || activeConsents.isEmpty()) {
             log.info("No active accounts/consents for: {}", bankClientId);
+            recordIngestion(userId, bankClientId, 0, fromDate, toDate);
             return 0;
         }
 
@@ -85,6 +101,8 @@ public class TransactionService {
         }
 
         int totalTransactions = 0;
+        int failedAccounts = 0;
+        List<Transaction> insertedTransactions = new ArrayList<>();
 
         for (Account account : accounts) {
             UserConsent consent = findConsentForAccount(account, activeConsents);
@@ -102,20 +120,49 @@ public class TransactionService {
                 );
 
                 if (!transactions.isEmpty()) {
-                    int savedCount = saveTransactionsBatch(account.getId(), bankClientId, transactions);
+                    List<Transaction> saved = saveTransactionsBatch(account.getId(), userId, bankClientId, transactions);
+                    insertedTransactions.addAll(saved);
+                    int savedCount = saved.size();
                     totalTransactions += savedCount;
                     log.debug("Saved {} transactions for account {}", savedCount, account.getId());
                 }
 
             } catch (Exception e) {
+                failedAccounts++;
                 log.error("Failed to export transactions for account {}: {}", account.getId(), e.getMessage());
             }
         }
 
+        userFeatureService.applyTransactions(userId, bankClientId, insertedTransactions);
+
         log.info("Exported {} total transactions for bankClientId: {}", totalTransactions, bankClientId);
+        if (failedAccounts > 0) {
+            // Окно получено не полностью: успешной синхронизацией его не считаем
+            recordFailure(userId, bankClientId, failedAccounts);
+        } else {
+            recordIngestion(userId, bankClientId, totalTransactions, fromDate, toDate);
+        }
         return totalTransactions;
     }
 
+    private void recordIngestion(UUID userId, String bankClientId, int newTransactions,
+                                 LocalDateTime fromDate, LocalDateTime toDate) {
+        try {
+            syncPriorityService.recordIngestion(userId, bankClientId, newTransactions, fromDate, toDate);
+        } catch (Exception e) {
+            log.warn("Failed to update sync state for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private void recordFailure(UUID userId, String bankClientId, int failedAccounts) {
+        log.warn("Sync for user {} incomplete: {} accounts failed, will retry", userId, failedAccounts);
+        try {
+            syncPriorityService.recordFailure(userId, bankClientId);
+        } catch (Exception e) {
+            log.warn("Failed to update sync state for user {}: {}", userId, e.getMessage());
+        }
+    }
+
     private UserConsent findConsentForAccount(Account account, List<UserConsent> consents) {
         return consents.stream()
                 .filter(c -> c.getId().equals(account.getUserConsentId()))
@@ -123,13 +170,8 @@ public class TransactionService {
                 .orElse(null);
     }
 
-    private int saveTransactionsBatch(UUID accountId, String bankClientId, List<Transaction> transactions) {
-        UUID userId = getUserIdByBankClientId(bankClientId);
-        if (userId == null) {
-            log.warn("Cannot save transactions: user not found for bankClientId: {}", bankClientId);
-            return 0;
-        }
-
+    private List<Transaction> saveTransactionsBatch(UUID accountId, UUID userId, String bankClientId,
+                                                    List<Transaction> transactions) {
         // ✅ Пакетная проверка дубликатов
         Set<String> existingIds = findExistingTransactionIds(accountId, transactions);
 
@@ -139,11 +181,40 @@ public class TransactionService {
         );
 
         if (newTransactions.isEmpty()) {
-            return 0;
+            return Collections.emptyList();
         }
 
         // ✅ Нативный batch insert
-        return executeBatchInsert(newTransactions);
+        List<Transaction> inserted = executeBatchInsert(newTransactions);
+        publishChanges(userId, bankClientId, accountId, inserted);
+        return inserted;
+    }
+
+    // Изменения уходят через outbox в той же транзакции, что и вставка; ключ — userId
+    private void publishChanges(UUID userId, String bankClientId, UUID accountId, List<Transaction> inserted) {
+        if (inserted.isEmpty()) {
+            return;
+        }
+
+        List<TransactionChangeEvent.Change> changes = inserted.stream()
+                .map(t -> TransactionChangeEvent.Change.builder()
+                        .id(t.getId())
+                        .bookingDate(t.getBookingDate())
+                        .amount(t.getAmount())
+                        .isExpense(t.getIsExpense())
+                        .category(t.getCategory())
+                        .build())
+                .collect(Collectors.toList());
+
+        TransactionChangeEvent event = TransactionChangeEvent.builder()
+                .userId(userId)
+                .bankClientId(bankClientId)
+                .accountId(accountId)
+                .transactions(changes)
+                .timestamp(System.currentTimeMillis())
+                .build();
+
+        outboxService.enqueue(CHANGES_TOPIC, userId.toString(), event);
     }
 
     private Set<String> findExistingTransactionIds(UUID accountId, List<Transaction> transactions) {
@@ -162,6 +233,7 @@ public class TransactionService {
         return transactions.stream()
                 .filter(t -> !existingIds.contains(t.getExternalTransactionId()))
                 .peek(t -> {
+                    t.setId(UUID.randomUUID());
                     t.setAccountId(accountId);
                     t.setUserId(userId);
                     t.setBankClientId(bankClientId);
@@ -177,8 +249,8 @@ public class TransactionService {
                 .collect(Collectors.toList());
     }
 
-    private int executeBatchInsert(List<Transaction> transactions) {
-        int totalInserted = 0;
+    private List<Transaction> executeBatchInsert(List<Transaction> transactions) {
+        List<Transaction> inserted = new ArrayList<>(transactions.size());
 
         for (int i = 0; i < transactions.size(); i += BATCH_SIZE) {
             List<Transaction> batch = transactions.subList(i,
@@ -197,16 +269,21 @@ public class TransactionService {
                 }
             });
 
-            totalInserted += Arrays.stream(results).sum();
+            // 0 — строка отброшена ON CONFLICT, в событие изменений она не попадает
+            for (int j = 0; j < results.length; j++) {
+                if (results[j] != 0) {
+                    inserted.add(batch.get(j));
+                }
+            }
         }
 
-        return totalInserted;
+        return inserted;
     }
 
     private void setPreparedStatementValues(PreparedStatement ps, Transaction t) throws SQLException {
         int paramIndex = 1;
 
-        ps.setObject(paramIndex++, UUID.randomUUID()); // Генерируем UUID
+        ps.setObject(paramIndex++, t.getId());
         ps.setObject(paramIndex++, t.getAccountId());
         ps.setObject(paramIndex++, t.getUserId());
         ps.setString(paramIndex++, t.getBankClientId());
@@ -221,14 +298,6 @@ public class TransactionService {
     }
 
     private UUID getUserIdByBankClientId(String bankClientId) {
-        try {
-            ResponseEntity<UUID> response = userServiceClient.getUserIdByBankClientId(bankClientId);
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                return response.getBody();
-            }
-        } catch (Exception e) {
-            log.error("Failed to get userId for bankClientId {}: {}", bankClientId, e.getMessage());
-        }
-        return null;
+        return userDirectoryService.getUserId(bankClientId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.example.aggregationservice.service;
+
+import com.example.aggregationservice.client.UserServiceClient;
+import com.example.aggregationservice.dto.UserLifecycleEvent;
+import com.example.aggregationservice.model.UserDirectoryEntry;
+import com.example.aggregationservice.repository.UserDirectoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Локальная копия пользователей из user-service, которая пополняется событиями user_lifecycle_events.
+ * Запросы в user-service остаются только для первичной загрузки и для ещё не реплицированных пользователей.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserDirectoryService {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String UPSERT_SQL = """
+        INSERT INTO user_directory (user_id, bank_client_id, active, source_timestamp, updated_at)
+        VALUES (?, ?, ?, ?, now())
+        ON CONFLICT (user_id) DO UPDATE SET
+            bank_client_id = EXCLUDED.bank_client_id,
+            active = EXCLUDED.active,
+            source_timestamp = EXCLUDED.source_timestamp,
+            updated_at = now()
+        WHERE user_directory.source_timestamp <= EXCLUDED.source_timestamp
+    """;
+
+    private final UserDirectoryRepository directoryRepository;
+    private final UserServiceClient userServiceClient;
+    private final JdbcTemplate jdbcTemplate;
+
+    public void apply(UserLifecycleEvent event) {
+        if (event.getUserId() == null) {
+            return;
+        }
+        long timestamp = event.getTimestamp() != null ? event.getTimestamp() : System.currentTimeMillis();
+        jdbcTemplate.update(UPSERT_SQL, event.getUserId(), event.getBankClientId(), event.isActive(), timestamp);
+        log.debug("User directory: {} {}", event.getEventType(), event.getUserId());
+    }
+
+    public void bootstrapIfEmpty() {
+        if (directoryRepository.count() == 0) {
+            bootstrapSnapshot();
+        }
+    }
+
+    // Полный снимок активных пользователей; события новее снимка сохраняют приоритет
+    @Transactional
+    public int bootstrapSnapshot() {
+        long snapshotTimestamp = System.currentTimeMillis();
+        Map<UUID, String> mappings = userServiceClient.getAllBankClientIds();
+        if (mappings.isEmpty()) {
+            log.warn("User-service returned an empty snapshot, keeping the local directory as is");
+            return 0;
+        }
+
+        List<Object[]> rows = new ArrayList<>(mappings.size());
+        mappings.forEach((userId, bankClientId) ->
+                rows.add(new Object[]{userId, bankClientId, true, snapshotTimestamp}));
+
+        for (int i = 0; i < rows.size(); i += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows.subList(i, Math.min(i + BATCH_SIZE, rows.size())));
+        }
+
+        int deactivated = directoryRepository.deactivateNotSeenSince(snapshotTimestamp);
+        log.info("User directory snapshot loaded: {} active users, {} deactivated", rows.size(), deactivated);
+        return rows.size();
+    }
+
+    public List<UUID> getActiveUserIds() {
+        return directoryRepository.findActiveUserIds();
+    }
+
+    // Постраничный обход активных пользователей по возрастанию userId
+    public List<UUID> getActiveUserIdsAfter(UUID after, int limit) {
+        return directoryRepository.findActiveUserIdsAfter(after, PageRequest.of(0, limit));
+    }
+
+    public long countActiveUsers() {
+        return directoryRepository.countByActiveTrue();
+    }
+
+    public Map<UUID, String> getBankClientIds(Collection<UUID> userIds) {
+        Map<UUID, String> result = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return result;
+        }
+
+        for (UserDirectoryEntry entry : directoryRepository.findByUserIdIn(userIds)) {
+            if (entry.getBankClientId() != null) {
+                result.put(entry.getUserId(), entry.getBankClientId());
+            }
+        }
+
+        List<UUID> missing = userIds.stream().filter(id -> !result.containsKey(id)).toList();
+        for (int i = 0; i < missing.size(); i += BATCH_SIZE) {
+            List<UUID> batch = missing.subList(i, Math.min(i + BATCH_SIZE, missing.size()));
+            try {
+                result.putAll(userServiceClient.getBankClientIds(batch));
+            } catch (Exception e) {
+                log.warn("Failed to resolve {} bankClientIds from user-service: {}", batch.size(), e.getMessage());
+            }
+        }
+
+        return result;
+    }
+
+    public Map<String, UUID> getUserIds(Collection<String> bankClientIds) {
+        Map<String, UUID> result = new HashMap<>();
+        if (bankClientIds.isEmpty()) {
+            return result;
+        }
+
+        for (UserDirectoryEntry entry : directoryRepository.findByBankClientIdIn(bankClientIds)) {
+            result.put(entry.getBankClientId(), entry.getUserId());
+        }
+
+        List<String> missing = bankClientIds.stream().filter(id -> !result.containsKey(id)).toList();
+        for (int i = 0; i < missing.size(); i += BATCH_SIZE) {
+            List<String> batch = missing.subList(i, Math.min(i + BATCH_SIZE, missing.size()));
+            try {
+                result.putAll(userServiceClient.getUserIdsByBankClientIds(batch));
+            } catch (Exception e) {
+                log.warn("Failed to resolve {} userIds from user-service: {}", batch.size(), e.getMessage());
+            }
+        }
+
+        return result;
+    }
+
+    public UUID getUserId(String bankClientId) {
+        if (bankClientId == null) {
+            return null;
+        }
+
+        return directoryRepository.findFirstByBankClientIdOrderBySourceTimestampDesc(bankClientId)
+                .map(UserDirectoryEntry::getUserId)
+                .orElseGet(() -> fetchUserId(bankClientId));
+    }
+
+    private UUID fetchUserId(String bankClientId) {
+        try {
+            ResponseEntity<UUID> response = userServiceClient.getUserIdByBankClientId(bankClientId);
+            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+                return response.getBody();
+            }
+        } catch (Exception e) {
+            log.error("Failed to get userId for bankClientId {}: {}", bankClientId, e.getMessage());
+        }
+        return null;
+    }
+}
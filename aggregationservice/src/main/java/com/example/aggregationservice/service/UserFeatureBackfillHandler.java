@@ -0,0 +1,77 @@
+package com.example.aggregationservice.service;
+
+import com.example.aggregationservice.model.ScheduledTask;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Разовая пересборка векторов признаков для всех активных пользователей страницами: курсор хранится
+ * в taskData, между страницами задача возвращается в очередь, чтобы не занимать планировщик надолго.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserFeatureBackfillHandler implements TaskHandler {
+
+    private static final UUID START_CURSOR = new UUID(0L, 0L);
+
+    private final UserDirectoryService userDirectoryService;
+    private final UserFeatureService userFeatureService;
+
+    @Value("${app.user-features.backfill-page-size:200}")
+    private int pageSize;
+
+    @Value("${app.user-features.backfill-pause:1s}")
+    private Duration pause;
+
+    @Override
+    public String getSupportedTaskType() {
+        return "USER_FEATURES_BACKFILL";
+    }
+
+    @Override
+    public void handle(ScheduledTask task) {
+        Map<String, Object> data = task.getTaskData() != null ? new HashMap<>(task.getTaskData()) : new HashMap<>();
+        UUID cursor = data.containsKey("cursor") ? UUID.fromString((String) data.get("cursor")) : START_CURSOR;
+        long rebuilt = data.containsKey("rebuilt") ? ((Number) data.get("rebuilt")).longValue() : 0L;
+
+        List<UUID> page = userDirectoryService.getActiveUserIdsAfter(cursor, pageSize);
+        Map<UUID, String> bankClientIds = userDirectoryService.getBankClientIds(page);
+        for (UUID userId : page) {
+            String bankClientId = bankClientIds.get(userId);
+            if (bankClientId == null) {
+                continue;
+            }
+            try {
+                userFeatureService.rebuild(userId, bankClientId);
+                rebuilt++;
+            } catch (Exception e) {
+                log.warn("Failed to rebuild features for user {}: {}", userId, e.getMessage());
+            }
+        }
+
+        data.put("rebuilt", rebuilt);
+        task.setTaskData(data);
+        if (page.size() < pageSize) {
+            log.info("User features backfill finished: {} users rebuilt", rebuilt);
+            return;
+        }
+
+        data.put("cursor", page.get(page.size() - 1).toString());
+        task.setContinueAt(Instant.now().plus(pause));
+    }
+
+    @Override
+    public boolean shouldDeleteAfterSuccess() {
+        return true;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.aggregationservice.service;
+
+import com.example.aggregationservice.dto.UserFeatureVector;
+import com.example.aggregationservice.model.Account;
+import com.example.aggregationservice.model.Transaction;
+import com.example.aggregationservice.model.UserMlFeatures;
+import com.example.aggregationservice.repository.AccountRepository;
+import com.example.aggregationservice.repository.TransactionRepository;
+import com.example.aggregationservice.repository.UserMlFeaturesRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Инкрементальный вектор признаков пользователя для ML: обновляется при каждой загрузке новых транзакций,
+ * чтобы ML-сервис читал готовый вектор вместо всей истории. Недельные ряды и доли категорий считаются
+ * по одному окну из WEEKS_RETAINED календарных недель.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserFeatureService {
+
+    private static final int WEEKS_RETAINED = 26;
+    private static final int INCOME_DATES_RETAINED = 12;
+
+    private final UserMlFeaturesRepository featuresRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+
+    @Transactional
+    public void applyTransactions(UUID userId, String bankClientId, List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+
+        featuresRepository.insertIfAbsent(userId);
+        UserMlFeatures row = featuresRepository.findForUpdate(userId).orElseThrow();
+        UserFeatureVector features = row.getFeatures() != null ? row.getFeatures() : new UserFeatureVector();
+
+        features.setTransactionCount(features.getTransactionCount() + accumulate(features, transactions));
+        save(row, features, bankClientId);
+    }
+
+    // Пересборка вектора с нуля из транзакций окна: для пользователей, загруженных до появления признаков
+    @Transactional
+    public void rebuild(UUID userId, String bankClientId) {
+        LocalDate windowStart = windowStart();
+        List<Transaction> transactions = transactionRepository.findByBankClientIdAndBookingDateBetween(
+                bankClientId, windowStart.atStartOfDay(), LocalDateTime.now());
+
+        featuresRepository.insertIfAbsent(userId);
+        UserMlFeatures row = featuresRepository.findForUpdate(userId).orElseThrow();
+        UserFeatureVector features = new UserFeatureVector();
+        features.setTransactionCount((long) accumulate(features, transactions));
+        save(row, features, bankClientId);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<UUID, UserMlFeatures> getFeatures(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<UUID, UserMlFeatures> result = new HashMap<>();
+        featuresRepository.findAllById(userIds).forEach(row -> result.put(row.getUserId(), row));
+        return result;
+    }
+
+    // Возвращает число учтённых транзакций: без признака расход/доход транзакция пропускается
+    private int accumulate(UserFeatureVector features, List<Transaction> transactions) {
+        int applied = 0;
+        for (Transaction t : transactions) {
+            if (t.getIsExpense() == null) {
+                log.debug("Skipping unclassified transaction {} in features", t.getId());
+                continue;
+            }
+
+            LocalDate day = t.getBookingDate().toLocalDate();
+            LocalDate week = day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            BigDecimal amount = t.getAbsoluteAmount() != null ? t.getAbsoluteAmount() : t.getAmount().abs();
+
+            if (t.getIsExpense()) {
+                features.getWeeklyExpense().merge(week, amount, BigDecimal::add);
+                String category = t.getCategory() != null ? t.getCategory() : "OTHER";
+                features.getWeeklyCategoryExpense()
+                        .computeIfAbsent(week, w -> new HashMap<>())
+                        .merge(category, amount, BigDecimal::add);
+            } else {
+                features.getWeeklyIncome().merge(week, amount, BigDecimal::add);
+                features.getRecentIncomeDates().add(day);
+            }
+            applied++;
+        }
+        return applied;
+    }
+
+    private void save(UserMlFeatures row, UserFeatureVector features, String bankClientId) {
+        trimWeeks(features);
+        recomputeCategoryShares(features);
+        recomputeIncomeCadence(features);
+        refreshBalances(features, bankClientId);
+
+        row.setFeatures(features);
+        row.setVersion(row.getVersion() + 1);
+        row.setUpdatedAt(Instant.now());
+        featuresRepository.save(row);
+    }
+
+    // Окно — календарные недели от текущей, а не число записей: недели без операций тоже считаются
+    private void trimWeeks(UserFeatureVector features) {
+        LocalDate windowStart = windowStart();
+        features.getWeeklyExpense().headMap(windowStart).clear();
+        features.getWeeklyIncome().headMap(windowStart).clear();
+        features.getWeeklyCategoryExpense().headMap(windowStart).clear();
+    }
+
+    private LocalDate windowStart() {
+        return LocalDate.now()
+                .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                .minusWeeks(WEEKS_RETAINED - 1);
+    }
+
+    private void recomputeCategoryShares(UserFeatureVector features) {
+        Map<String, BigDecimal> categoryExpense = new HashMap<>();
+        features.getWeeklyCategoryExpense().values().forEach(week ->
+                week.forEach((category, amount) -> categoryExpense.merge(category, amount, BigDecimal::add)));
+        features.setCategoryExpense(categoryExpense);
+
+        BigDecimal total = categoryExpense.values().stream()
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        Map<String, Double> shares = new HashMap<>();
+        if (total.signum() > 0) {
+            features.getCategoryExpense().forEach((category, amount) ->
+                    shares.put(category, amount.doubleValue() / total.doubleValue()));
+        }
+        features.setCategoryShares(shares);
+    }
+
+    private void recomputeIncomeCadence(UserFeatureVector features) {
+        List<LocalDate> dates = features.getRecentIncomeDates();
+        dates.sort(null);
+        if (dates.size() > INCOME_DATES_RETAINED) {
+            dates.subList(0, dates.size() - INCOME_DATES_RETAINED).clear();
+        }
+
+        features.setIncomeIntervalDays(dates.size() < 2
+                ? null
+                : (double) ChronoUnit.DAYS.between(dates.get(0), dates.get(dates.size() - 1)) / (dates.size() - 1));
+    }
+
+    private void refreshBalances(UserFeatureVector features, String bankClientId) {
+        Map<UUID, BigDecimal> balances = new HashMap<>();
+        for (Account account : accountRepository.findActiveAccountsByBankClientId(bankClientId)) {
+            balances.put(account.getId(), account.getBalance() != null ? account.getBalance() : BigDecimal.ZERO);
+        }
+        features.setAccountBalances(balances);
+        features.setTotalBalance(balances.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add));
+    }
+}
@@ -1,41 +1,58 @@
 package com.example.aggregationservice.service;
 
-import com.example.aggregationservice.client.UserServiceClient;
-import com.example.aggregationservice.model.enums.TimeGroup;
-import feign.FeignException;
+import com.example.aggregationservice.config.SchedulingProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class UserGroupService {
 
-    private final UserServiceClient userServiceClient;
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final UserDirectoryService userDirectoryService;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final SchedulingProperties schedulingProperties;
 
-    public UserGroupService(UserServiceClient userServiceClient,
-                           @Qualifier("objectRedisTemplate") RedisTemplate<String, Object> redisTemplate) {
-        this.userServiceClient = userServiceClient;
+    public UserGroupService(UserDirectoryService userDirectoryService,
+                           @Qualifier("objectRedisTemplate") RedisTemplate<String, Object> redisTemplate,
+                           SchedulingProperties schedulingProperties) {
+        this.userDirectoryService = userDirectoryService;
         this.redisTemplate = redisTemplate;
+        this.schedulingProperties = schedulingProperties;
     }
 
-    private static final String USER_GROUP_KEY = "user_groups:%s";
+    private static final String EXPORT_SLOT_KEY = "export_slots:%d:%d";
     private static final String ALL_USERS_KEY = "all_active_users";
 
-    public TimeGroup getTimeGroupForUser(UUID userId) {
-        int groupIndex = Math.abs(userId.hashCode()) % 4;
-        return TimeGroup.values()[groupIndex];
+    public int getExportSlotCount() {
+        int slots = schedulingProperties.getTransactionExport().getSlots();
+        if (slots < 1 || slots > MINUTES_PER_DAY) {
+            throw new IllegalStateException("Export slot count must be between 1 and " + MINUTES_PER_DAY + ": " + slots);
+        }
+        return slots;
+    }
+
+    public int getExportSlotStartMinute(int slot) {
+        return slot * MINUTES_PER_DAY / getExportSlotCount();
+    }
+
+    public int getExportSlotForUser(UUID userId) {
+        long key = userId.getMostSignificantBits() ^ userId.getLeastSignificantBits();
+        return jumpConsistentHash(key, getExportSlotCount());
     }
 
-    public List<UUID> getUserIdsByTimeGroup(TimeGroup timeGroup) {
-        String cacheKey = String.format(USER_GROUP_KEY, timeGroup.getCode());
+    public List<UUID> getUserIdsByExportSlot(int slot) {
+        String cacheKey = String.format(EXPORT_SLOT_KEY, getExportSlotCount(), slot);
 
         @SuppressWarnings("unchecked")
         List<UUID> cachedUsers = (List<UUID>) redisTemplate.opsForValue().get(cacheKey);
@@ -69,7 +86,7 @@ public class UserGroupService {
     public void refreshUserGroupsCache() {
 
         try {
-            List<UUID> allUsers = userServiceClient.getAllActiveUserIds();
+            List<UUID> allUsers = userDirectoryService.getActiveUserIds();
 
             if (allUsers.isEmpty()) {
                 log.warn("No active users returned");
@@ -78,24 +95,33 @@ public class UserGroupService {
 
             redisTemplate.opsForValue().set(ALL_USERS_KEY, allUsers, 24, TimeUnit.HOURS);
 
-            for (TimeGroup group : TimeGroup.values()) {
-                List<UUID> groupUsers = allUsers.stream()
-                        .filter(userId -> getTimeGroupForUser(userId) == group)
-                        .collect(Collectors.toList());
+            int slotCount = getExportSlotCount();
+            Map<Integer, List<UUID>> usersBySlot = new HashMap<>();
+            for (UUID userId : allUsers) {
+                usersBySlot.computeIfAbsent(getExportSlotForUser(userId), slot -> new ArrayList<>()).add(userId);
+            }
 
-                String cacheKey = String.format(USER_GROUP_KEY, group.getCode());
-                redisTemplate.opsForValue().set(cacheKey, groupUsers, 24, TimeUnit.HOURS);
+            for (int slot = 0; slot < slotCount; slot++) {
+                String cacheKey = String.format(EXPORT_SLOT_KEY, slotCount, slot);
+                redisTemplate.opsForValue().set(cacheKey, usersBySlot.getOrDefault(slot, List.of()), 24, TimeUnit.HOURS);
             }
 
-        } catch (FeignException.Forbidden e) {
-            log.error("Access forbidden (403) when calling UserService. Check if endpoint requires authentication or internal access configuration. URL: {}", e.request().url(), e);
-            throw e;
-        } catch (FeignException e) {
-            log.error("Feign error when calling UserService. Status: {}, URL: {}", e.status(), e.request() != null ? e.request().url() : "unknown", e);
-            throw e;
         } catch (Exception e) {
             log.error("Failed to refresh user groups cache", e);
             throw e;
         }
     }
-}
\ No newline at end of file
+
+    // Jump consistent hash (Lamping, Veach): при изменении числа слотов с N на N+1
+    // переезжает только ~1/(N+1) пользователей, и только в новый слот
+    static int jumpConsistentHash(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
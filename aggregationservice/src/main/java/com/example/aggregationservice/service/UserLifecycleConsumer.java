@@ -0,0 +1,20 @@
+package com.example.aggregationservice.service;
+
+import com.example.aggregationservice.dto.UserLifecycleEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserLifecycleConsumer {
+
+    private final UserDirectoryService userDirectoryService;
+
+    @KafkaListener(topics = "user_lifecycle_events", groupId = "aggregation-service")
+    public void consumeUserLifecycleEvent(UserLifecycleEvent event) {
+        userDirectoryService.apply(event);
+    }
+}
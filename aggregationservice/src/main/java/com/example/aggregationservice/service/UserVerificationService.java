@@ -1,7 +1,6 @@
 package com.example.aggregationservice.service;
 
 import com.example.aggregationservice.client.NotificationServiceClient;
-import com.example.aggregationservice.client.UserServiceClient;
 import com.example.aggregationservice.dto.BankVerifyResponse;
 import com.example.aggregationservice.dto.CreateNotificationRequest;
 import com.example.aggregationservice.dto.PendingBank;
@@ -11,8 +10,6 @@ import com.example.aggregationservice.model.enums.*;
 import com.example.aggregationservice.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.ResponseEntity;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -34,8 +31,8 @@ public class UserVerificationService {
     private final ConsentEncryptionService encryptionService;
     private final BalanceService balanceService;
     private final TransactionService transactionService;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
-    private final UserServiceClient userServiceClient;
+    private final ForecastUpdatePublisher forecastUpdatePublisher;
+    private final UserDirectoryService userDirectoryService;
     private final NotificationServiceClient notificationServiceClient;
 
     @Transactional
@@ -50,6 +47,7 @@ public class UserVerificationService {
         boolean requiresUserAction = false;
 
         UUID userId = getUserIdByBankClientId(bankClientId);
+        List<CreateNotificationRequest> consentNotifications = new ArrayList<>();
 
         for (Bank bank : activeBanks) {
             try {
@@ -83,7 +81,7 @@ public class UserVerificationService {
                     pendingBanks.add(pendingBank);
                     requiresUserAction = true;
 
-                    createBankConsentNotification(userId, bank, bankClientId);
+                    consentNotifications.add(bankConsentNotification(userId, bank));
 
                     continue;
                 }
@@ -122,6 +120,8 @@ public class UserVerificationService {
             }
         }
 
+        sendBankConsentNotifications(userId, bankClientId, consentNotifications);
+
         if (!allAccounts.isEmpty()) {
             try {
                 balanceService.updateBalancesForUser(bankClientId);
@@ -163,51 +163,47 @@ public class UserVerificationService {
                 .build();
     }
 
-    private void createBankConsentNotification(UUID userId, Bank bank, String bankClientId) {
+    private CreateNotificationRequest bankConsentNotification(UUID userId, Bank bank) {
+        CreateNotificationRequest request = new CreateNotificationRequest();
+        request.setUserId(userId);
+        request.setType("BANK_CONSENT_REQUIRED");
+        request.setTitle("Требуется ваше согласие в банке");
+        request.setMessage(String.format(
+                "Для получения точных финансовых прогнозов необходимо предоставить доступ к данным в банке %s. " +
+                        "Пожалуйста, откройте приложение банка и подтвердите согласие на предоставление данных.",
+                bank.getName()
+        ));
+        return request;
+    }
+
+    // Уведомления по всем банкам, ожидающим согласия, уходят одним запросом
+    private void sendBankConsentNotifications(UUID userId, String bankClientId,
+                                              List<CreateNotificationRequest> requests) {
+        if (requests.isEmpty()) {
+            return;
+        }
         if (userId == null) {
             log.warn("Cannot create notification: userId not found for bankClientId: {}", bankClientId);
             return;
         }
 
         try {
-            CreateNotificationRequest request = new CreateNotificationRequest();
-            request.setUserId(userId);
-            request.setType("BANK_CONSENT_REQUIRED");
-            request.setTitle("Требуется ваше согласие в банке");
-            request.setMessage(String.format(
-                    "Для получения точных финансовых прогнозов необходимо предоставить доступ к данным в банке %s. " +
-                            "Пожалуйста, откройте приложение банка и подтвердите согласие на предоставление данных.",
-                    bank.getName()
-            ));
-
-            notificationServiceClient.createNotification(request);
-
-            log.info("Created bank consent notification for user {} in bank {}", userId, bank.getCode());
-
+            notificationServiceClient.createNotifications(requests);
+            log.info("Created {} bank consent notifications for user {}", requests.size(), userId);
         } catch (Exception e) {
-            log.error("Failed to create bank consent notification for user {} in bank {}: {}",
-                    userId, bank.getCode(), e.getMessage());
+            log.error("Failed to create bank consent notifications for user {}: {}", userId, e.getMessage());
         }
     }
 
     private UUID getUserIdByBankClientId(String bankClientId) {
-        try {
-            ResponseEntity<UUID> response = userServiceClient.getUserIdByBankClientId(bankClientId);
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                return response.getBody();
-            }
-        } catch (Exception e) {
-            log.error("Failed to get user ID for bankClientId {}: {}", bankClientId, e.getMessage());
-        }
-        return null;
+        return userDirectoryService.getUserId(bankClientId);
     }
 
     private void sendToMlService(String bankClientId, String analysisType) {
         try {
-            ResponseEntity<UUID> response = userServiceClient.getUserIdByBankClientId(bankClientId);
+            UUID userId = userDirectoryService.getUserId(bankClientId);
 
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                UUID userId = response.getBody();
+            if (userId != null) {
 
                 UserForecastUpdateEvent event = UserForecastUpdateEvent.builder()
                         .userId(userId)
@@ -216,7 +212,7 @@ public class UserVerificationService {
                         .timestamp(System.currentTimeMillis())
                         .build();
 
-                kafkaTemplate.send("user_forecast_update", userId.toString(), event);
+                forecastUpdatePublisher.publish(event);
 
             }
         } catch (Exception e) {
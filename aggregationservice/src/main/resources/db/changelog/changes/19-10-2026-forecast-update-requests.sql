@@ -0,0 +1,14 @@
+-- liquibase formatted sql
+
+-- changeset finpulse:28
+CREATE TABLE IF NOT EXISTS forecast_update_requests (
+    user_id UUID PRIMARY KEY,
+    bank_client_id VARCHAR(255),
+    analysis_type VARCHAR(50) NOT NULL,
+    priority INTEGER NOT NULL DEFAULT 0,
+    merged_count INTEGER NOT NULL DEFAULT 1,
+    first_requested_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    due_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_forecast_update_requests_due ON forecast_update_requests(due_at);
@@ -0,0 +1,6 @@
+-- liquibase formatted sql
+
+-- changeset finpulse:31
+-- Под keyset-пагинацию истории уведомлений: WHERE user_id = ? ORDER BY created_at DESC, id DESC
+CREATE INDEX IF NOT EXISTS idx_notifications_user_created_id ON notifications(user_id, created_at DESC, id DESC);
+DROP INDEX IF EXISTS idx_notifications_user_id;
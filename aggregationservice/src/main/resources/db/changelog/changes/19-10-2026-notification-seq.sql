@@ -0,0 +1,24 @@
+-- liquibase formatted sql
+
+-- changeset finpulse:30
+CREATE TABLE IF NOT EXISTS notification_sequences (
+    user_id UUID PRIMARY KEY,
+    last_seq BIGINT NOT NULL DEFAULT 0
+);
+
+ALTER TABLE notifications ADD COLUMN IF NOT EXISTS seq BIGINT;
+
+-- Нумеруем уже существующие уведомления в порядке создания
+UPDATE notifications n
+SET seq = numbered.rn
+FROM (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY user_id ORDER BY created_at, id) AS rn
+    FROM notifications
+) numbered
+WHERE n.id = numbered.id AND n.seq IS NULL;
+
+INSERT INTO notification_sequences (user_id, last_seq)
+SELECT user_id, MAX(seq) FROM notifications GROUP BY user_id
+ON CONFLICT (user_id) DO NOTHING;
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_notifications_user_seq ON notifications(user_id, seq);
@@ -0,0 +1,5 @@
+-- liquibase formatted sql
+
+-- changeset finpulse:32
+-- Релей придерживает строку, пока по тому же ключу есть более ранняя: NOT EXISTS по (topic, message_key, id)
+CREATE INDEX IF NOT EXISTS idx_outbox_events_key ON outbox_events(topic, message_key, id);
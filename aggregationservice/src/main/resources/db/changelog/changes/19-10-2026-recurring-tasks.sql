@@ -0,0 +1,64 @@
+-- liquibase formatted sql
+
+-- changeset finpulse:18
+CREATE TABLE IF NOT EXISTS scheduled_tasks (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    task_type VARCHAR(100) NOT NULL,
+    task_name VARCHAR(255) NOT NULL,
+    task_data JSONB,
+    scheduled_time TIMESTAMP NOT NULL,
+    status VARCHAR(50) DEFAULT 'PENDING',
+    priority INTEGER DEFAULT 5,
+    max_retries INTEGER DEFAULT 3,
+    retry_count INTEGER DEFAULT 0,
+    last_error TEXT,
+    locked_by VARCHAR(100),
+    locked_at TIMESTAMP,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- changeset finpulse:19
+CREATE TABLE IF NOT EXISTS recurring_task_definitions (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    name VARCHAR(255) NOT NULL UNIQUE,
+    task_type VARCHAR(100) NOT NULL,
+    cron_expression VARCHAR(100) NOT NULL,
+    task_data JSONB,
+    misfire_policy VARCHAR(20) NOT NULL DEFAULT 'FIRE_ONCE',
+    enabled BOOLEAN DEFAULT true,
+    next_fire_time TIMESTAMP,
+    last_fire_time TIMESTAMP,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- changeset finpulse:20
+CREATE TABLE IF NOT EXISTS task_run_history (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    definition_id UUID,
+    task_type VARCHAR(100) NOT NULL,
+    task_name VARCHAR(255) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    scheduled_time TIMESTAMP,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP NOT NULL,
+    retry_count INTEGER DEFAULT 0,
+    instance_id VARCHAR(100),
+    error TEXT
+);
+
+-- changeset finpulse:21
+ALTER TABLE scheduled_tasks ADD COLUMN IF NOT EXISTS definition_id UUID;
+CREATE INDEX IF NOT EXISTS idx_scheduled_tasks_status_time ON scheduled_tasks(status, scheduled_time);
+CREATE INDEX IF NOT EXISTS idx_scheduled_tasks_definition_id ON scheduled_tasks(definition_id);
+CREATE INDEX IF NOT EXISTS idx_recurring_task_definitions_next_fire ON recurring_task_definitions(next_fire_time) WHERE enabled = true;
+CREATE INDEX IF NOT EXISTS idx_task_run_history_finished_at ON task_run_history(finished_at);
+CREATE INDEX IF NOT EXISTS idx_task_run_history_definition_id ON task_run_history(definition_id, finished_at);
+
+-- changeset finpulse:22
+DELETE FROM scheduled_tasks
+WHERE definition_id IS NULL
+  AND task_type IN ('BALANCE_UPDATE', 'TRANSACTION_EXPORT', 'ML_ANALYSIS', 'PRODUCT_SYNC')
+  AND task_name IN ('WEEKLY_BALANCE_UPDATE', 'WEEKLY_ML_ANALYSIS', 'DAILY_PRODUCT_SYNC',
+                    'DAILY_EXPORT_00-06', 'DAILY_EXPORT_06-12', 'DAILY_EXPORT_12-18', 'DAILY_EXPORT_18-00');
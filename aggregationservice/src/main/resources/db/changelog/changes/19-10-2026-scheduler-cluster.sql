@@ -0,0 +1,15 @@
+-- liquibase formatted sql
+
+-- changeset finpulse:23
+CREATE TABLE IF NOT EXISTS scheduler_instances (
+    instance_id VARCHAR(100) PRIMARY KEY,
+    host VARCHAR(255),
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_heartbeat TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- changeset finpulse:24
+ALTER TABLE recurring_task_definitions ADD COLUMN IF NOT EXISTS partitioned BOOLEAN DEFAULT false;
+ALTER TABLE scheduled_tasks ADD COLUMN IF NOT EXISTS partition_key INTEGER;
+ALTER TABLE task_run_history ADD COLUMN IF NOT EXISTS partition_key INTEGER;
+CREATE INDEX IF NOT EXISTS idx_scheduled_tasks_partition_due ON scheduled_tasks(partition_key, scheduled_time) WHERE status = 'PENDING';
@@ -0,0 +1,13 @@
+-- liquibase formatted sql
+
+-- changeset finpulse:26
+CREATE TABLE IF NOT EXISTS user_directory (
+    user_id UUID PRIMARY KEY,
+    bank_client_id VARCHAR(255),
+    active BOOLEAN NOT NULL DEFAULT true,
+    source_timestamp BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_user_directory_bank_client ON user_directory(bank_client_id);
+CREATE INDEX IF NOT EXISTS idx_user_directory_active ON user_directory(user_id) WHERE active = true;
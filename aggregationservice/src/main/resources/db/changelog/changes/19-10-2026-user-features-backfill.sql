@@ -0,0 +1,7 @@
+-- liquibase formatted sql
+
+-- changeset finpulse:33
+-- Векторы, собранные до оконных категорий, и пользователи, загруженные до появления признаков,
+-- пересобираются разовой задачей из транзакций окна
+INSERT INTO scheduled_tasks (task_type, task_name, task_data, scheduled_time, status, priority)
+VALUES ('USER_FEATURES_BACKFILL', 'USER_FEATURES_BACKFILL', '{}'::jsonb, CURRENT_TIMESTAMP, 'PENDING', 5);
@@ -0,0 +1,9 @@
+-- liquibase formatted sql
+
+-- changeset finpulse:29
+CREATE TABLE IF NOT EXISTS user_ml_features (
+    user_id UUID PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT 0,
+    features JSONB NOT NULL DEFAULT '{}',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,15 @@
+-- liquibase formatted sql
+
+-- changeset finpulse:25
+CREATE TABLE IF NOT EXISTS user_sync_state (
+    user_id UUID PRIMARY KEY,
+    bank_client_id VARCHAR(255),
+    tx_rate_per_day DOUBLE PRECISION NOT NULL DEFAULT 0,
+    last_sync_at TIMESTAMP,
+    last_change_at TIMESTAMP,
+    next_sync_at TIMESTAMP NOT NULL,
+    empty_syncs INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_user_sync_state_next_sync ON user_sync_state(next_sync_at);
@@ -0,0 +1,158 @@
+package com.example.notificationservice.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Согласование бинарного формата полезной нагрузки на сессию. Клиент нативного эндпоинта передаёт в CONNECT
+ * заголовок accept-payload (application/cbor или application/x-jackson-smile), после чего JSON его сообщений
+ * перекодируется потоково и уходит бинарным кадром с заголовком payload-format. Сам компонент стоит
+ * на исходящем канале, на входящий ставится {@link #inbound()}: там только согласование на CONNECT,
+ * тела клиентских SEND остаются JSON для @MessageMapping.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BinaryPayloadInterceptor implements ChannelInterceptor {
+
+    public static final String ACCEPT_PAYLOAD_HEADER = "accept-payload";
+    public static final String PAYLOAD_FORMAT_HEADER = "payload-format";
+
+    private static final Map<String, JsonFactory> FORMATS = Map.of(
+            "application/cbor", new CBORFactory(),
+            "application/x-jackson-smile", new SmileFactory());
+
+    private final MeterRegistry meterRegistry;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final Map<String, String> sessionFormats = new ConcurrentHashMap<>();
+
+    private final ChannelInterceptor inboundInterceptor = new ChannelInterceptor() {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            MessageHeaders headers = message.getHeaders();
+            String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+            if (sessionId != null && SimpMessageHeaderAccessor.getMessageType(headers) == SimpMessageType.CONNECT) {
+                negotiate(message, sessionId);
+            }
+            return message;
+        }
+    };
+
+    public ChannelInterceptor inbound() {
+        return inboundInterceptor;
+    }
+
+    // Исходящий канал: перекодируем сообщения брокера в согласованный формат
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        SimpMessageType messageType = SimpMessageHeaderAccessor.getMessageType(headers);
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        if (sessionId == null) {
+            return message;
+        }
+
+        String format = sessionFormats.get(sessionId);
+        if (format == null || messageType != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[] payload) || !isJson(headers)) {
+            return message;
+        }
+
+        try {
+            byte[] binary = transcode(payload, FORMATS.get(format));
+            recordSize("json", payload.length);
+            recordSize(format, binary.length);
+
+            // octet-stream — единственный тип, который STOMP-обработчик отправляет бинарным кадром
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+            accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+            accessor.removeNativeHeader("content-length");
+            accessor.setNativeHeader(PAYLOAD_FORMAT_HEADER, format);
+            return MessageBuilder.createMessage(binary, accessor.getMessageHeaders());
+        } catch (IOException e) {
+            log.warn("Failed to encode payload as {} for session {}, sending JSON: {}", format, sessionId, e.getMessage());
+            return message;
+        }
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        sessionFormats.remove(event.getSessionId());
+    }
+
+    private void negotiate(Message<?> message, String sessionId) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            accessor = StompHeaderAccessor.wrap(message);
+        }
+
+        String accept = accessor.getFirstNativeHeader(ACCEPT_PAYLOAD_HEADER);
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (accept == null || attributes == null
+                || !Boolean.TRUE.equals(attributes.get(NativeTransportInterceptor.NATIVE_TRANSPORT_ATTRIBUTE))) {
+            return;
+        }
+
+        // Берём первый поддерживаемый формат из списка клиента, иначе остаёмся на JSON
+        for (String candidate : accept.split(",")) {
+            String format = candidate.trim().toLowerCase();
+            if (FORMATS.containsKey(format)) {
+                sessionFormats.put(sessionId, format);
+                log.debug("WebSocket session {} negotiated {} payloads", sessionId, format);
+                return;
+            }
+        }
+    }
+
+    private boolean isJson(MessageHeaders headers) {
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        MimeType mimeType = contentType instanceof MimeType type ? type
+                : contentType instanceof String value ? MimeTypeUtils.parseMimeType(value) : null;
+        return mimeType != null && MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(mimeType);
+    }
+
+    private byte[] transcode(byte[] json, JsonFactory target) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = jsonFactory.createParser(json);
+             JsonGenerator generator = target.createGenerator(out)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+        return out.toByteArray();
+    }
+
+    private void recordSize(String format, int bytes) {
+        DistributionSummary.builder("websocket.payload.size")
+                .description("Size of transcoded push payloads before and after binary encoding")
+                .baseUnit("bytes")
+                .tag("format", format)
+                .register(meterRegistry)
+                .record(bytes);
+    }
+}
@@ -1,18 +1,27 @@
 package com.example.notificationservice.config;
 
 import com.example.notificationservice.dto.ForecastReadyEvent;
+import com.example.notificationservice.dto.LatestForecastEvent;
 import com.example.notificationservice.dto.RecommendationsReadyEvent;
+import com.example.notificationservice.service.NotificationService;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
 import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
@@ -24,8 +33,19 @@ public class KafkaConfig {
     @Value("${spring.kafka.bootstrap-servers:kafka:9092}")
     private String bootstrapServers;
 
+    @Value("${app.kafka.consumer.concurrency:3}")
+    private int concurrency;
+
+    @Value("${app.kafka.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
     // Общая конфигурация
     private Map<String, Object> getCommonConfig() {
+        // Пачка листенера целиком уходит в createNotifications: больший poll падал бы и ретраился бесконечно
+        if (maxPollRecords > NotificationService.MAX_BULK_SIZE) {
+            throw new IllegalStateException("app.kafka.consumer.max-poll-records must not exceed "
+                    + NotificationService.MAX_BULK_SIZE + ", got " + maxPollRecords);
+        }
         Map<String, Object> config = new HashMap<>();
         config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
@@ -34,6 +54,7 @@ public class KafkaConfig {
         config.put(JsonDeserializer.TRUSTED_PACKAGES, "com.example.notificationservice.dto,com.example.*");
         config.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, true);
         config.put(JsonDeserializer.REMOVE_TYPE_INFO_HEADERS, false);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
         return config;
     }
 
@@ -57,10 +78,53 @@ public class KafkaConfig {
         return new DefaultKafkaConsumerFactory<>(config);
     }
 
+    // Фабрика для LatestForecastEvent: каждый узел читает компактируемый топик целиком со своей группой.
+    // Автокоммит выключен, а контейнер в режиме MANUAL без подтверждений тоже ничего не коммитит,
+    // поэтому у групп прошлых запусков нет оффсетов и брокер удаляет их, как только они пустеют
+    @Bean
+    public ConsumerFactory<String, LatestForecastEvent> latestForecastConsumerFactory() {
+        Map<String, Object> config = getCommonConfig();
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        config.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+        config.put(JsonDeserializer.VALUE_DEFAULT_TYPE, LatestForecastEvent.class);
+        return new DefaultKafkaConsumerFactory<>(config);
+    }
+
+    // Фабрика для сброса кэша рекомендаций: группа своя на каждый запуск, нужны только новые события,
+    // оффсеты не коммитятся, как и у latestForecastConsumerFactory
+    @Bean
+    public ConsumerFactory<String, RecommendationsReadyEvent> recommendationsCacheConsumerFactory() {
+        Map<String, Object> config = getCommonConfig();
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        config.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+        config.put(JsonDeserializer.VALUE_DEFAULT_TYPE, RecommendationsReadyEvent.class);
+        return new DefaultKafkaConsumerFactory<>(config);
+    }
+
+    @Bean
+    public ProducerFactory<String, Object> producerFactory() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        return new DefaultKafkaProducerFactory<>(config);
+    }
+
+    @Bean
+    public KafkaTemplate<String, Object> kafkaTemplate() {
+        return new KafkaTemplate<>(producerFactory());
+    }
+
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, ForecastReadyEvent> forecastKafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, ForecastReadyEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(forecastConsumerFactory());
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
         factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(1000L, 3L)));
         return factory;
     }
@@ -69,6 +133,27 @@ public class KafkaConfig {
     public ConcurrentKafkaListenerContainerFactory<String, RecommendationsReadyEvent> recommendationsKafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, RecommendationsReadyEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(recommendationsConsumerFactory());
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(1000L, 3L)));
+        return factory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, RecommendationsReadyEvent> recommendationsCacheKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, RecommendationsReadyEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(recommendationsCacheConsumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(1000L, 3L)));
+        return factory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, LatestForecastEvent> latestForecastKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, LatestForecastEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(latestForecastConsumerFactory());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
         factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(1000L, 3L)));
         return factory;
     }
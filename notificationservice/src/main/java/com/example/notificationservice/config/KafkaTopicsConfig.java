@@ -0,0 +1,20 @@
+package com.example.notificationservice.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+public class KafkaTopicsConfig {
+
+    // Компактируемый топик: по каждому userId хранится последний прогноз
+    @Bean
+    public NewTopic latestForecastsTopic() {
+        return TopicBuilder.name("latest_forecasts")
+                .partitions(3)
+                .replicas(1)
+                .compact()
+                .build();
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.notificationservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.websocket.broker")
+public class WebSocketBrokerProperties {
+
+    // false — встроенный simple broker, сообщения доходят только до сессий этого узла
+    private boolean relayEnabled = false;
+
+    private String relayHost = "localhost";
+    private int relayPort = 61613;
+    private String login = "guest";
+    private String passcode = "guest";
+    private String virtualHost = "/";
+    private long heartbeatMs = 10000;
+}
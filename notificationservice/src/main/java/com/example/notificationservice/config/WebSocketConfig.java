@@ -1,27 +1,111 @@
 package com.example.notificationservice.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.util.List;
 
 @Slf4j
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final WebSocketBrokerProperties brokerProperties;
+    private final WebSocketTransportProperties transportProperties;
+    private final MeterRegistry meterRegistry;
+    private final BinaryPayloadInterceptor binaryPayloadInterceptor;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        if (brokerProperties.isRelayEnabled()) {
+            // Внешний STOMP-брокер (RabbitMQ): сообщения и реестр пользователей общие для всех узлов
+            config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(brokerProperties.getRelayHost())
+                    .setRelayPort(brokerProperties.getRelayPort())
+                    .setClientLogin(brokerProperties.getLogin())
+                    .setClientPasscode(brokerProperties.getPasscode())
+                    .setSystemLogin(brokerProperties.getLogin())
+                    .setSystemPasscode(brokerProperties.getPasscode())
+                    .setVirtualHost(brokerProperties.getVirtualHost())
+                    .setSystemHeartbeatSendInterval(brokerProperties.getHeartbeatMs())
+                    .setSystemHeartbeatReceiveInterval(brokerProperties.getHeartbeatMs())
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+            log.info("STOMP broker relay enabled: {}:{}", brokerProperties.getRelayHost(), brokerProperties.getRelayPort());
+        } else {
+            config.enableSimpleBroker("/topic", "/queue");
+        }
+        // Для обоих брокеров: пул clientOutboundChannel многопоточный, без этого кадры одной сессии
+        // могли бы обогнать друг друга, и порядок дорожек WebSocketDispatchQueue терялся бы на выходе
+        config.setPreservePublishOrder(true);
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
     }
 
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Исходящие кадры каждой сессии буферизуются отдельно: поток, заставший сессию занятой, не ждёт её,
+        // а при переполнении буфера или превышении времени отправки сессия закрывается (SESSION_NOT_RELIABLE)
+        registration.setSendTimeLimit(transportProperties.getSendTimeLimitMs())
+                .setSendBufferSizeLimit(transportProperties.getSendBufferSizeLimit())
+                .setMessageSizeLimit(transportProperties.getMessageSizeLimit())
+                .addDecoratorFactory(handler -> new WebSocketHandlerDecorator(handler) {
+                    @Override
+                    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                        if (CloseStatus.SESSION_NOT_RELIABLE.equals(closeStatus)) {
+                            Counter.builder("websocket.session.overflow")
+                                    .description("Sessions closed because they could not keep up with outbound messages")
+                                    .register(meterRegistry)
+                                    .increment();
+                            log.warn("WebSocket session {} closed: outbound buffer or send time limit exceeded", session.getId());
+                        }
+                        super.afterConnectionClosed(session, closeStatus);
+                    }
+                });
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(binaryPayloadInterceptor.inbound());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(transportProperties.getOutboundCorePoolSize());
+        executor.setMaxPoolSize(transportProperties.getOutboundMaxPoolSize());
+        executor.setQueueCapacity(transportProperties.getOutboundQueueCapacity());
+        executor.setThreadNamePrefix("ws-outbound-");
+
+        Gauge.builder("websocket.outbound.queue.size", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .description("Messages waiting in the client outbound channel")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Threads currently writing to client sessions")
+                .register(meterRegistry);
+
+        registration.taskExecutor(executor);
+        registration.interceptors(binaryPayloadInterceptor);
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        WebSocketHandshakeHandler handshakeHandler = new WebSocketHandshakeHandler();
+        WebSocketHandshakeHandler handshakeHandler = new WebSocketHandshakeHandler(transportProperties.isCompressionEnabled());
         WebSocketAuthInterceptor authInterceptor = new WebSocketAuthInterceptor();
 
         registry.addEndpoint("/ws/notifications")
@@ -42,6 +126,13 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
 
-
+        // Нативные эндпоинты без SockJS: бинарные кадры (CBOR/Smile) и permessage-deflate
+        NativeTransportInterceptor nativeTransportInterceptor = new NativeTransportInterceptor();
+        for (String endpoint : List.of("/ws/notifications", "/ws/forecasts", "/ws/recommendations")) {
+            registry.addEndpoint(endpoint + "/native")
+                    .addInterceptors(authInterceptor, nativeTransportInterceptor)
+                    .setHandshakeHandler(handshakeHandler)
+                    .setAllowedOriginPatterns("*");
+        }
     }
 }
\ No newline at end of file
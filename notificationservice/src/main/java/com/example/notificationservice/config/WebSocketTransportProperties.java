@@ -0,0 +1,24 @@
+package com.example.notificationservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.websocket.transport")
+public class WebSocketTransportProperties {
+
+    // Сессия, которая не успевает забирать сообщения за это время или копит больше буфера, закрывается
+    private int sendTimeLimitMs = 15000;
+    private int sendBufferSizeLimit = 256 * 1024;
+    private int messageSizeLimit = 64 * 1024;
+
+    // permessage-deflate, если клиент его предлагает
+    private boolean compressionEnabled = true;
+
+    // Пул clientOutboundChannel: отправка в сессии не должна упираться в один медленный сокет
+    private int outboundCorePoolSize = 8;
+    private int outboundMaxPoolSize = 16;
+    private int outboundQueueCapacity = 10000;
+}
@@ -1,8 +1,12 @@
 package com.example.notificationservice.controller;
 
 import com.example.notificationservice.dto.CreateNotificationRequest;
+import com.example.notificationservice.dto.MarkNotificationsReadRequest;
+import com.example.notificationservice.dto.NotificationPageDto;
+import com.example.notificationservice.dto.NotificationReplayDto;
 import com.example.notificationservice.model.Notification;
 import com.example.notificationservice.service.NotificationCoordinator;
+import com.example.notificationservice.service.NotificationReplayService;
 import com.example.notificationservice.service.NotificationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,6 +18,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -24,19 +29,30 @@ public class NotificationController {
 
     private final NotificationService notificationService;
     private final NotificationCoordinator notificationCoordinator;
+    private final NotificationReplayService replayService;
 
-    @Operation(summary = "Получить все уведомления пользователя")
+    @Operation(summary = "Получить уведомления пользователя", description = "Постранично от новых к старым; для следующей страницы передайте nextCursor")
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Notification>> getUserNotifications(@PathVariable String userId) {
-        List<Notification> notifications = notificationService.getUserNotifications(UUID.fromString(userId));
-        return ResponseEntity.ok(notifications);
+    public ResponseEntity<NotificationPageDto> getUserNotifications(
+            @PathVariable String userId,
+            @Parameter(description = "Курсор из предыдущей страницы") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы, не больше 100") @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(notificationService.getUserNotifications(UUID.fromString(userId), cursor, limit));
     }
 
-    @Operation(summary = "Получить непрочитанные уведомления")
+    @Operation(summary = "Получить уведомления после указанного seq", description = "Дельта для клиента, который переподключается после обрыва")
+    @GetMapping("/user/{userId}/since/{seq}")
+    public ResponseEntity<NotificationReplayDto> getNotificationsSince(@PathVariable String userId, @PathVariable long seq) {
+        return ResponseEntity.ok(replayService.replaySince(UUID.fromString(userId), seq));
+    }
+
+    @Operation(summary = "Получить непрочитанные уведомления", description = "Постранично от новых к старым; для следующей страницы передайте nextCursor")
     @GetMapping("/user/{userId}/unread")
-    public ResponseEntity<List<Notification>> getUnreadNotifications(@PathVariable String userId) {
-        List<Notification> notifications = notificationService.getUnreadNotifications(UUID.fromString(userId));
-        return ResponseEntity.ok(notifications);
+    public ResponseEntity<NotificationPageDto> getUnreadNotifications(
+            @PathVariable String userId,
+            @Parameter(description = "Курсор из предыдущей страницы") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы, не больше 100") @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(notificationService.getUnreadNotifications(UUID.fromString(userId), cursor, limit));
     }
 
     @Operation(summary = "Получить количество непрочитанных уведомлений")
@@ -53,6 +69,22 @@ public class NotificationController {
         return ResponseEntity.ok(notification);
     }
 
+    @Operation(summary = "Отметить уведомления пользователя прочитанными",
+            description = "Ровно один вариант: список UUID, всё не новее курсора beforeCursor или all=true для всех уведомлений")
+    @PutMapping("/user/{userId}/read")
+    public ResponseEntity<Map<String, Integer>> markManyAsRead(@PathVariable String userId,
+                                                               @RequestBody MarkNotificationsReadRequest request) {
+        int updated = notificationService.markManyAsRead(UUID.fromString(userId), request);
+        return ResponseEntity.ok(Map.of("updated", updated));
+    }
+
+    @Operation(summary = "Создать пачку уведомлений", description = "До 1000 уведомлений за запрос, одна вставка в БД")
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Integer>> createNotifications(@RequestBody List<CreateNotificationRequest> requests) {
+        List<Notification> notifications = notificationCoordinator.createNotificationsWithWebSocket(requests);
+        return ResponseEntity.ok(Map.of("created", notifications.size()));
+    }
+
     @Operation(summary = "Создать новое уведомление")
     @PostMapping
     public ResponseEntity<Notification> createNotification(@RequestBody CreateNotificationRequest request) {
@@ -1,10 +1,13 @@
 package com.example.notificationservice.controller;
 
+import com.example.notificationservice.dto.NotificationReplayDto;
+import com.example.notificationservice.service.NotificationReplayService;
 import com.example.notificationservice.service.WebSocketNotificationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.security.access.AccessDeniedException;
@@ -20,6 +23,7 @@ import java.util.UUID;
 public class WebSocketController {
 
     private final WebSocketNotificationService webSocketNotificationService;
+    private final NotificationReplayService replayService;
 
     @MessageMapping("/notifications.subscribe")
     @SendToUser("/queue/notifications")
@@ -53,4 +57,16 @@ public class WebSocketController {
             throw new IllegalArgumentException("Invalid user ID format");
         }
     }
-}
\ No newline at end of file
+
+    @MessageMapping("/notifications.resume")
+    @SendToUser("/queue/notifications.replay")
+    @Operation(summary = "Догрузить пропущенные уведомления", description = "Возвращает уведомления с seq больше переданного в заголовке since-seq")
+    public NotificationReplayDto resume(@Header(name = "since-seq", defaultValue = "0") long sinceSeq, Principal principal) {
+        if (principal == null) {
+            log.warn("WebSocket resume attempt without authentication");
+            throw new AccessDeniedException("User not authenticated");
+        }
+
+        return replayService.replaySince(UUID.fromString(principal.getName()), sinceSeq);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.notificationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LatestForecastEvent {
+    private String userId;
+    private ForecastDto forecast;
+    private Long timestamp;
+}
@@ -0,0 +1,21 @@
+package com.example.notificationservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Schema(description = "Запрос на массовую отметку уведомлений прочитанными; должен быть задан ровно один из способов")
+public class MarkNotificationsReadRequest {
+
+    @Schema(description = "UUID уведомлений, не больше 1000")
+    private List<UUID> notificationIds;
+
+    @Schema(description = "Курсор страницы: отметить это уведомление и все более старые")
+    private String beforeCursor;
+
+    @Schema(description = "true — отметить все уведомления пользователя; пустой запрос не трактуется как «все»")
+    private Boolean all;
+}
@@ -1,12 +1,16 @@
 package com.example.notificationservice.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 @Schema(description = "DTO для уведомления")
 public class NotificationDto {
 
@@ -34,6 +38,9 @@ public class NotificationDto {
     @Schema(description = "UUID связанной сущности", example = "123e4567-e89b-12d3-a456-426614174000")
     private UUID relatedEntityId;
 
+    @Schema(description = "Порядковый номер уведомления в потоке пользователя", example = "42")
+    private Long seq;
+
     @Schema(description = "Дата и время создания уведомления")
     private LocalDateTime createdAt;
 }
\ No newline at end of file
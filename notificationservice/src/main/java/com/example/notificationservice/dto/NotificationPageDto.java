@@ -0,0 +1,21 @@
+package com.example.notificationservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Страница уведомлений, от новых к старым")
+public class NotificationPageDto {
+
+    @Schema(description = "Уведомления страницы")
+    private List<NotificationDto> items;
+
+    @Schema(description = "Курсор следующей страницы; null, если страница последняя")
+    private String nextCursor;
+}
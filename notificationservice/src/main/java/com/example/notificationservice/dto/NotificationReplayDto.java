@@ -0,0 +1,24 @@
+package com.example.notificationservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Уведомления, пропущенные клиентом после указанного seq")
+public class NotificationReplayDto {
+
+    @Schema(description = "Уведомления с seq больше запрошенного, по возрастанию seq")
+    private List<NotificationDto> notifications;
+
+    @Schema(description = "Последний выданный пользователю seq", example = "42")
+    private Long lastSeq;
+
+    @Schema(description = "Выдана только часть: следующую порцию запрашивать начиная с последнего полученного seq")
+    private boolean truncated;
+}
@@ -47,6 +47,10 @@ public class Notification {
     @Schema(description = "UUID связанной сущности", example = "123e4567-e89b-12d3-a456-426614174000")
     private UUID relatedEntityId;
 
+    @Column(name = "seq")
+    @Schema(description = "Порядковый номер уведомления в потоке пользователя", example = "42")
+    private Long seq;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     @Schema(description = "Дата и время создания уведомления")
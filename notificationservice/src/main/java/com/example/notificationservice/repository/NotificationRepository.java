@@ -1,18 +1,46 @@
 package com.example.notificationservice.repository;
 
+import com.example.notificationservice.dto.NotificationDto;
 import com.example.notificationservice.model.Notification;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, UUID> {
 
-    List<Notification> findByUserIdOrderByCreatedAtDesc(UUID userId);
+    String DTO_SELECT = "SELECT new com.example.notificationservice.dto.NotificationDto(" +
+            "n.id, n.userId, n.type, n.title, n.message, n.isRead, n.relatedEntityType, n.relatedEntityId, n.seq, n.createdAt) " +
+            "FROM Notification n ";
 
-    List<Notification> findByUserIdAndIsReadFalseOrderByCreatedAtDesc(UUID userId);
+    // Keyset-пагинация по (created_at, id): стоимость страницы не зависит от её номера
+    @Query(DTO_SELECT + "WHERE n.userId = :userId AND (:unreadOnly = false OR n.isRead = false) " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    List<NotificationDto> findFirstPage(@Param("userId") UUID userId,
+                                        @Param("unreadOnly") boolean unreadOnly,
+                                        Pageable pageable);
+
+    @Query(DTO_SELECT + "WHERE n.userId = :userId AND (:unreadOnly = false OR n.isRead = false) " +
+            "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    List<NotificationDto> findPageAfter(@Param("userId") UUID userId,
+                                        @Param("unreadOnly") boolean unreadOnly,
+                                        @Param("createdAt") LocalDateTime createdAt,
+                                        @Param("id") UUID id,
+                                        Pageable pageable);
 
     Long countByUserIdAndIsReadFalse(UUID userId);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.id = :id AND n.isRead = false")
+    int markReadIfUnread(@Param("id") UUID id);
+
+    List<Notification> findByUserIdAndSeqGreaterThanOrderBySeqAsc(UUID userId, Long seq, Pageable pageable);
 }
\ No newline at end of file
@@ -5,17 +5,20 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface RecommendationRepository extends JpaRepository<Recommendation, UUID> {
 
-    @Query("SELECT r FROM Recommendation r WHERE r.userId = :userId ORDER BY r.createdAt DESC")
-    List<Recommendation> findAllByUserIdOrderByCreatedAtDesc(@Param("userId") UUID userId);
+    @Query("SELECT r FROM Recommendation r WHERE r.userId = :userId ORDER BY r.createdAt DESC LIMIT 1")
+    Optional<Recommendation> findLatestByUserId(@Param("userId") UUID userId);
 
-    default Optional<Recommendation> findLatestByUserId(UUID userId) {
-        return findAllByUserIdOrderByCreatedAtDesc(userId).stream().findFirst();
-    }
+    @Query(value = """
+        SELECT DISTINCT ON (r.user_id) * FROM user_recommendations r
+        WHERE r.user_id IN (:userIds)
+        ORDER BY r.user_id, r.created_at DESC
+        """, nativeQuery = true)
+    List<Recommendation> findLatestByUserIds(@Param("userIds") Collection<UUID> userIds);
 }
-
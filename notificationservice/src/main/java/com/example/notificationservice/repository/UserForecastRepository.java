@@ -6,6 +6,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -22,4 +24,11 @@ public interface UserForecastRepository extends JpaRepository<UserForecast, UUID
         LIMIT 1
         """, nativeQuery = true)
     Optional<UserForecast> findLatestByUserIdNative(@Param("userId") UUID userId);
-}
\ No newline at end of file
+
+    @Query(value = """
+        SELECT DISTINCT ON (uf.user_id) * FROM user_forecasts uf
+        WHERE uf.user_id IN (:userIds)
+        ORDER BY uf.user_id, uf.forecast_week_start DESC, uf.updated_at DESC
+        """, nativeQuery = true)
+    List<UserForecast> findLatestByUserIds(@Param("userIds") Collection<UUID> userIds);
+}
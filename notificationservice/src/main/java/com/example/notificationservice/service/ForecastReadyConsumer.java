@@ -3,13 +3,16 @@ package com.example.notificationservice.service;
 import com.example.notificationservice.dto.CreateNotificationRequest;
 import com.example.notificationservice.dto.ForecastDto;
 import com.example.notificationservice.dto.ForecastReadyEvent;
-import com.example.notificationservice.model.Notification;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -27,47 +30,68 @@ public class ForecastReadyConsumer {
             groupId = "notification-service",
             containerFactory = "forecastKafkaListenerContainerFactory"
     )
-    @Transactional
-    public void consumeForecastReadyEvent(ForecastReadyEvent event) {
-        try {
-
-            UUID userId = UUID.fromString(event.getUserId());
-
-            if (Boolean.TRUE.equals(event.getForecastReady())) {
-
-                ForecastDto forecast = forecastService.getLatestForecast(userId);
-
-                if (forecast != null) {
-                    webSocketForecastService.sendForecastToUser(userId, forecast);
+    public void consumeForecastReadyEvents(List<ForecastReadyEvent> events) {
+        Set<UUID> readyUsers = new LinkedHashSet<>();
+        List<CreateNotificationRequest> readyNotifications = new ArrayList<>();
+        List<CreateNotificationRequest> errorNotifications = new ArrayList<>();
+
+        for (ForecastReadyEvent event : events) {
+            // null приходит от ErrorHandlingDeserializer для нечитаемых записей
+            if (event == null) {
+                continue;
+            }
+            try {
+                UUID userId = UUID.fromString(event.getUserId());
+
+                if (Boolean.TRUE.equals(event.getForecastReady())) {
+                    readyUsers.add(userId);
+                    readyNotifications.add(readyNotification(userId));
+                } else {
+                    errorNotifications.add(errorNotification(userId));
                 }
+            } catch (Exception e) {
+                log.error("Ошибка обработки события forecast_ready: {}", e.getMessage(), e);
+            }
+        }
 
-                CreateNotificationRequest notificationRequest = new CreateNotificationRequest();
-                notificationRequest.setUserId(userId);
-                notificationRequest.setType("FORECAST_READY");
-                notificationRequest.setTitle("📊 Ваш финансовый прогноз готов!");
-                notificationRequest.setMessage("Мы проанализировали ваши траты и подготовили прогноз на следующую неделю. Откройте раздел прогнозов, чтобы увидеть детали.");
-                notificationRequest.setRelatedEntityType("FORECAST");
-
-                Notification notification = notificationCoordinator.createNotificationWithWebSocket(notificationRequest);
-
-            } else {
-
-                CreateNotificationRequest notificationRequest = new CreateNotificationRequest();
-                notificationRequest.setUserId(userId);
-                notificationRequest.setType("FORECAST_ERROR");
-                notificationRequest.setTitle("⚠️ Ошибка создания прогноза");
-                notificationRequest.setMessage("Не удалось создать финансовый прогноз. Попробуйте позже или обратитесь в поддержку.");
-                notificationRequest.setRelatedEntityType("FORECAST");
-
-                notificationService.createNotification(notificationRequest);
+        // Ошибка БД пробрасывается: DefaultErrorHandler повторит пачку, и оффсеты не закоммитятся раньше времени
+        try {
+            // 1. Сначала уведомления, их WebSocket-пуши уходят после коммита
+            if (!readyNotifications.isEmpty()) {
+                notificationCoordinator.createNotificationsWithWebSocket(readyNotifications);
+            }
+            if (!errorNotifications.isEmpty()) {
+                notificationService.createNotifications(errorNotifications);
             }
 
-        } catch (Exception e) {
-            log.error("Ошибка обработки события forecast_ready: {}", e.getMessage(), e);
+            // 2. Затем свежие прогнозы всей пачки одним запросом и их пуши
+            Map<UUID, ForecastDto> forecasts = forecastService.refreshLatestForecasts(readyUsers);
+            forecasts.forEach(webSocketForecastService::sendForecastToUser);
+
+            log.debug("forecast_ready: обработано {} событий, {} прогнозов", events.size(), forecasts.size());
+        } catch (RuntimeException e) {
+            log.error("Ошибка обработки пачки forecast_ready из {} событий: {}", events.size(), e.getMessage());
+            throw e;
         }
     }
-}
-
-
 
+    private CreateNotificationRequest readyNotification(UUID userId) {
+        CreateNotificationRequest notificationRequest = new CreateNotificationRequest();
+        notificationRequest.setUserId(userId);
+        notificationRequest.setType("FORECAST_READY");
+        notificationRequest.setTitle("📊 Ваш финансовый прогноз готов!");
+        notificationRequest.setMessage("Мы проанализировали ваши траты и подготовили прогноз на следующую неделю. Откройте раздел прогнозов, чтобы увидеть детали.");
+        notificationRequest.setRelatedEntityType("FORECAST");
+        return notificationRequest;
+    }
 
+    private CreateNotificationRequest errorNotification(UUID userId) {
+        CreateNotificationRequest notificationRequest = new CreateNotificationRequest();
+        notificationRequest.setUserId(userId);
+        notificationRequest.setType("FORECAST_ERROR");
+        notificationRequest.setTitle("⚠️ Ошибка создания прогноза");
+        notificationRequest.setMessage("Не удалось создать финансовый прогноз. Попробуйте позже или обратитесь в поддержку.");
+        notificationRequest.setRelatedEntityType("FORECAST");
+        return notificationRequest;
+    }
+}
@@ -8,6 +8,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -18,8 +21,55 @@ import java.util.UUID;
 public class ForecastService {
 
     private final UserForecastRepository userForecastRepository;
+    private final LatestForecastCache latestForecastCache;
 
+    // Чтение из памяти узла; в БД идём только пока кэш не прогрет или пользователь ещё не встречался
     public ForecastDto getLatestForecast(UUID userId) {
+        Optional<ForecastDto> cached = latestForecastCache.get(userId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        if (latestForecastCache.isKnownAbsent(userId)) {
+            return null;
+        }
+
+        ForecastDto forecast = loadLatestForecast(userId);
+        if (latestForecastCache.isWarm()) {
+            if (forecast != null) {
+                latestForecastCache.remember(userId, forecast);
+                return latestForecastCache.get(userId).orElse(forecast);
+            }
+            latestForecastCache.markAbsent(userId);
+        }
+        return forecast;
+    }
+
+    // Вызывается по forecast_ready: свежий прогноз из БД публикуется в latest_forecasts для всех узлов
+    public ForecastDto refreshLatestForecast(UUID userId) {
+        ForecastDto forecast = loadLatestForecast(userId);
+        if (forecast != null) {
+            latestForecastCache.publish(userId, forecast);
+        }
+        return forecast;
+    }
+
+    // Пакетный вариант для forecast_ready: один запрос на всю пачку событий
+    public Map<UUID, ForecastDto> refreshLatestForecasts(Collection<UUID> userIds) {
+        Map<UUID, ForecastDto> result = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return result;
+        }
+
+        for (UserForecast forecast : userForecastRepository.findLatestByUserIds(userIds)) {
+            ForecastDto dto = convertToDto(forecast);
+            latestForecastCache.publish(forecast.getUserId(), dto);
+            // Отдаём уже дополненный ссылками экземпляр из кэша
+            result.put(forecast.getUserId(), latestForecastCache.get(forecast.getUserId()).orElse(dto));
+        }
+        return result;
+    }
+
+    private ForecastDto loadLatestForecast(UUID userId) {
         try {
 
             Optional<UserForecast> forecastOpt = userForecastRepository.findLatestByUserId(userId);
@@ -53,6 +103,11 @@ public class ForecastService {
     }
 
     public void enrichChartUrlsWithFullPath(ForecastDto forecast, String minioPublicUrl) {
+        enrichChartUrls(forecast, minioPublicUrl);
+    }
+
+    // Идемпотентно: ссылки, уже начинающиеся с http, не трогаются
+    static void enrichChartUrls(ForecastDto forecast, String minioPublicUrl) {
         if (forecast == null || forecast.getChartUrls() == null || minioPublicUrl == null) {
             return;
         }
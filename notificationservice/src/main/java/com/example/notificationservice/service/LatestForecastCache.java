@@ -0,0 +1,202 @@
+package com.example.notificationservice.service;
+
+import com.example.notificationservice.dto.ForecastDto;
+import com.example.notificationservice.dto.LatestForecastEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.AbstractConsumerSeekAware;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Последний прогноз каждого пользователя в памяти узла. Источник — компактируемый топик latest_forecasts,
+ * который каждый узел при старте перечитывает с начала; пока он не дочитан, чтение идёт в БД.
+ * Группа у каждого запуска своя, оффсеты не коммитятся: позиция всегда берётся от начала топика.
+ * Хранится готовый к отправке DTO с полными ссылками на графики, размер ограничен LRU.
+ */
+@Slf4j
+@Service
+public class LatestForecastCache extends AbstractConsumerSeekAware {
+
+    public static final String TOPIC = "latest_forecasts";
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final AdminClient adminClient;
+
+    private final Map<UUID, ForecastDto> forecasts;
+    // Пользователи, для которых БД подтвердила отсутствие прогноза
+    private final Set<UUID> absent;
+    private final Map<TopicPartition, Long> catchUpOffsets = new ConcurrentHashMap<>();
+    private volatile boolean warm;
+
+    @Value("${minio.public-url:http://localhost:9000/ml-charts}")
+    private String minioPublicUrl;
+
+    public LatestForecastCache(KafkaTemplate<String, Object> kafkaTemplate, KafkaAdmin kafkaAdmin,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.forecasts.cache.max-users:20000}") int maxUsers) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties());
+        this.forecasts = Collections.synchronizedMap(lruMap(maxUsers));
+        this.absent = Collections.newSetFromMap(Collections.synchronizedMap(lruMap(maxUsers)));
+
+        Gauge.builder("forecasts.cache.size", forecasts, Map::size)
+                .description("Users whose latest forecast is cached on this node")
+                .register(meterRegistry);
+    }
+
+    public boolean isWarm() {
+        return warm;
+    }
+
+    // DTO уже дополнен ссылками и не меняется, поэтому отдаётся без копирования
+    public Optional<ForecastDto> get(UUID userId) {
+        return Optional.ofNullable(forecasts.get(userId));
+    }
+
+    public boolean isKnownAbsent(UUID userId) {
+        return absent.contains(userId);
+    }
+
+    public void markAbsent(UUID userId) {
+        absent.add(userId);
+    }
+
+    // Только локально: запись могла быть вытеснена LRU, топик её уже содержит
+    public void remember(UUID userId, ForecastDto forecast) {
+        put(userId, forecast);
+    }
+
+    // Публикует прогноз в топик и сразу кладёт в локальную карту, не дожидаясь своего же события
+    public void publish(UUID userId, ForecastDto forecast) {
+        put(userId, forecast);
+        LatestForecastEvent event = LatestForecastEvent.builder()
+                .userId(userId.toString())
+                .forecast(forecast)
+                .timestamp(System.currentTimeMillis())
+                .build();
+
+        kafkaTemplate.send(TOPIC, userId.toString(), event).whenComplete((result, ex) -> {
+            if (ex != null) {
+                log.error("Failed to publish latest forecast for user {}: {}", userId, ex.getMessage());
+            }
+        });
+    }
+
+    // Acknowledgment не принимаем намеренно: контейнер в режиме MANUAL, оффсеты группы не сохраняются
+    @KafkaListener(
+            topics = TOPIC,
+            groupId = "notification-latest-forecast-#{T(java.util.UUID).randomUUID()}",
+            containerFactory = "latestForecastKafkaListenerContainerFactory"
+    )
+    public void consume(ConsumerRecord<String, LatestForecastEvent> record) {
+        try {
+            UUID userId = UUID.fromString(record.key());
+            LatestForecastEvent event = record.value();
+            if (event == null || event.getForecast() == null) {
+                forecasts.remove(userId);
+            } else {
+                put(userId, event.getForecast());
+            }
+        } catch (Exception e) {
+            log.warn("Skipping latest forecast record at offset {}: {}", record.offset(), e.getMessage());
+        }
+
+        if (!warm) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            catchUpOffsets.computeIfPresent(partition, (tp, end) -> record.offset() + 1 >= end ? null : end);
+            markWarmIfCaughtUp();
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        super.onPartitionsAssigned(assignments, callback);
+        callback.seekToBeginning(assignments.keySet());
+
+        try {
+            Map<TopicPartition, OffsetSpec> request = assignments.keySet().stream()
+                    .collect(Collectors.toMap(tp -> tp, tp -> OffsetSpec.latest()));
+            Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> latest = adminClient
+                    .listOffsets(request)
+                    .all()
+                    .get(10, TimeUnit.SECONDS);
+
+            Map<TopicPartition, Long> pending = new HashMap<>();
+            latest.forEach((tp, info) -> {
+                if (info.offset() > 0) {
+                    pending.put(tp, info.offset());
+                }
+            });
+            catchUpOffsets.putAll(pending);
+        } catch (Exception e) {
+            log.warn("Failed to read end offsets of {}, cache stays cold until restart: {}", TOPIC, e.getMessage());
+            return;
+        }
+        markWarmIfCaughtUp();
+    }
+
+    private void markWarmIfCaughtUp() {
+        if (!warm && catchUpOffsets.isEmpty()) {
+            warm = true;
+            log.info("Latest forecast cache loaded: {} users", forecasts.size());
+        }
+    }
+
+    private void put(UUID userId, ForecastDto forecast) {
+        ForecastDto ready = copy(forecast);
+        ForecastService.enrichChartUrls(ready, minioPublicUrl);
+        forecasts.put(userId, ready);
+        absent.remove(userId);
+    }
+
+    // Копия отвязывает chartUrls от DTO вызывающего: ссылки дополняются на месте, а в топик уходят относительные пути
+    private ForecastDto copy(ForecastDto forecast) {
+        return ForecastDto.builder()
+                .forecastAmount(forecast.getForecastAmount())
+                .confidenceMin(forecast.getConfidenceMin())
+                .confidenceMax(forecast.getConfidenceMax())
+                .changePercentage(forecast.getChangePercentage())
+                .lastWeekAmount(forecast.getLastWeekAmount())
+                .forecastMethod(forecast.getForecastMethod())
+                .forecastWeekStart(forecast.getForecastWeekStart())
+                .fullForecastData(forecast.getFullForecastData())
+                .chartUrls(forecast.getChartUrls() != null ? new HashMap<>(forecast.getChartUrls()) : null)
+                .build();
+    }
+
+    private static <V> Map<UUID, V> lruMap(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @PreDestroy
+    public void close() {
+        adminClient.close();
+    }
+}
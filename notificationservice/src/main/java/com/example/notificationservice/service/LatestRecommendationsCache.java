@@ -0,0 +1,79 @@
+package com.example.notificationservice.service;
+
+import com.example.notificationservice.dto.RecommendationsDto;
+import com.example.notificationservice.dto.RecommendationsReadyEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Последние рекомендации пользователей в памяти узла, уже разобранные из jsonb. Размер ограничен LRU,
+ * запись сбрасывается на каждом узле по событию recommendations_ready.
+ */
+@Slf4j
+@Service
+public class LatestRecommendationsCache {
+
+    // Пользователь без рекомендаций тоже кэшируется, иначе каждая подписка шла бы в БД
+    private static final RecommendationsDto NONE = new RecommendationsDto(List.of());
+
+    private final Map<UUID, RecommendationsDto> recommendations;
+
+    public LatestRecommendationsCache(MeterRegistry meterRegistry,
+                                      @Value("${app.recommendations.cache.max-users:20000}") int maxUsers) {
+        this.recommendations = Collections.synchronizedMap(new LinkedHashMap<UUID, RecommendationsDto>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, RecommendationsDto> eldest) {
+                return size() > maxUsers;
+            }
+        });
+
+        Gauge.builder("recommendations.cache.size", recommendations, Map::size)
+                .description("Users whose latest recommendations are cached on this node")
+                .register(meterRegistry);
+    }
+
+    public Optional<RecommendationsDto> get(UUID userId) {
+        RecommendationsDto cached = recommendations.get(userId);
+        return cached != null && cached != NONE ? Optional.of(cached) : Optional.empty();
+    }
+
+    public boolean isKnownAbsent(UUID userId) {
+        return recommendations.get(userId) == NONE;
+    }
+
+    public void put(UUID userId, RecommendationsDto dto) {
+        recommendations.put(userId, dto != null ? dto : NONE);
+    }
+
+    // Своя группа на каждый узел: событие должно сбросить запись везде, а не только там, где его обработали.
+    // Сбрасываем всегда, даже только что перечитанную: сравнивать нечем, время события ставит продьюсер по своим
+    // часам, а лишнее чтение из БД дешевле устаревших рекомендаций
+    @KafkaListener(
+            topics = "recommendations_ready",
+            groupId = "notification-recommendations-cache-#{T(java.util.UUID).randomUUID()}",
+            containerFactory = "recommendationsCacheKafkaListenerContainerFactory"
+    )
+    public void evict(List<RecommendationsReadyEvent> events) {
+        for (RecommendationsReadyEvent event : events) {
+            if (event == null || event.getUserId() == null) {
+                continue;
+            }
+            try {
+                recommendations.remove(UUID.fromString(event.getUserId()));
+            } catch (IllegalArgumentException e) {
+                log.warn("Skipping recommendations cache eviction for invalid userId {}", event.getUserId());
+            }
+        }
+    }
+}
@@ -8,6 +8,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -32,6 +33,21 @@ public class NotificationCoordinator {
         return notification;
     }
 
+    // Сначала вся пачка коммитится одним batch, затем уходят WebSocket-пуши
+    public List<Notification> createNotificationsWithWebSocket(List<CreateNotificationRequest> requests) {
+        List<Notification> notifications = notificationService.createNotifications(requests);
+
+        for (Notification notification : notifications) {
+            try {
+                webSocketNotificationService.sendNotificationToUser(notification.getUserId(), convertToDto(notification));
+            } catch (Exception e) {
+                log.error("Failed to send real-time notification: {}", e.getMessage());
+            }
+        }
+
+        return notifications;
+    }
+
     private NotificationDto convertToDto(Notification notification) {
         NotificationDto dto = new NotificationDto();
         dto.setId(notification.getId());
@@ -42,6 +58,7 @@ public class NotificationCoordinator {
         dto.setIsRead(notification.getIsRead());
         dto.setRelatedEntityType(notification.getRelatedEntityType());
         dto.setRelatedEntityId(notification.getRelatedEntityId());
+        dto.setSeq(notification.getSeq());
         dto.setCreatedAt(notification.getCreatedAt());
         return dto;
     }
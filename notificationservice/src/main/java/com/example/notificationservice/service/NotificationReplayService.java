@@ -0,0 +1,151 @@
+package com.example.notificationservice.service;
+
+import com.example.notificationservice.dto.NotificationDto;
+import com.example.notificationservice.dto.NotificationReplayDto;
+import com.example.notificationservice.model.Notification;
+import com.example.notificationservice.repository.NotificationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Догрузка пропущенных уведомлений при переподключении: клиент присылает последний увиденный seq
+ * и получает только дельту. Свежие уведомления берутся из кольцевого буфера на пользователя, остальное из БД.
+ */
+@Slf4j
+@Service
+public class NotificationReplayService {
+
+    private static final String LAST_SEQ_SQL = "SELECT last_seq FROM notification_sequences WHERE user_id = ?";
+
+    private final NotificationRepository notificationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int bufferSize;
+    private final int maxReplay;
+    private final Map<UUID, NavigableMap<Long, NotificationDto>> buffers;
+
+    public NotificationReplayService(NotificationRepository notificationRepository, JdbcTemplate jdbcTemplate,
+                                     @Value("${app.notifications.replay.buffer-size:50}") int bufferSize,
+                                     @Value("${app.notifications.replay.max-users:10000}") int maxUsers,
+                                     @Value("${app.notifications.replay.max-replay:200}") int maxReplay) {
+        this.notificationRepository = notificationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.bufferSize = bufferSize;
+        this.maxReplay = maxReplay;
+        // LRU по пользователям: память ограничена bufferSize * maxUsers уведомлений
+        this.buffers = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, NavigableMap<Long, NotificationDto>> eldest) {
+                return size() > maxUsers;
+            }
+        });
+    }
+
+    public void remember(Collection<Notification> notifications) {
+        for (Notification notification : notifications) {
+            if (notification.getSeq() == null) {
+                continue;
+            }
+            NavigableMap<Long, NotificationDto> buffer = buffers.computeIfAbsent(notification.getUserId(), id -> new TreeMap<>());
+            synchronized (buffer) {
+                buffer.put(notification.getSeq(), convertToDto(notification));
+                while (buffer.size() > bufferSize) {
+                    buffer.pollFirstEntry();
+                }
+            }
+        }
+    }
+
+    public void markRead(Notification notification) {
+        NavigableMap<Long, NotificationDto> buffer = buffers.get(notification.getUserId());
+        if (buffer == null || notification.getSeq() == null) {
+            return;
+        }
+        synchronized (buffer) {
+            NotificationDto dto = buffer.get(notification.getSeq());
+            if (dto != null) {
+                dto.setIsRead(notification.getIsRead());
+            }
+        }
+    }
+
+    public void markRead(UUID userId, Collection<Long> seqs) {
+        NavigableMap<Long, NotificationDto> buffer = buffers.get(userId);
+        if (buffer == null) {
+            return;
+        }
+        synchronized (buffer) {
+            for (Long seq : seqs) {
+                NotificationDto dto = buffer.get(seq);
+                if (dto != null) {
+                    dto.setIsRead(true);
+                }
+            }
+        }
+    }
+
+    public NotificationReplayDto replaySince(UUID userId, long sinceSeq) {
+        List<Long> lastSeqRows = jdbcTemplate.queryForList(LAST_SEQ_SQL, Long.class, userId);
+        long lastSeq = lastSeqRows.isEmpty() ? 0 : lastSeqRows.get(0);
+        if (lastSeq <= sinceSeq) {
+            return new NotificationReplayDto(List.of(), lastSeq, false);
+        }
+
+        long upTo = Math.min(lastSeq, sinceSeq + maxReplay);
+        boolean truncated = upTo < lastSeq;
+
+        List<NotificationDto> fromBuffer = fromBuffer(userId, sinceSeq, upTo);
+        if (fromBuffer != null) {
+            return new NotificationReplayDto(fromBuffer, lastSeq, truncated);
+        }
+
+        List<NotificationDto> fromDb = new ArrayList<>();
+        for (Notification notification : notificationRepository.findByUserIdAndSeqGreaterThanOrderBySeqAsc(
+                userId, sinceSeq, PageRequest.of(0, maxReplay))) {
+            fromDb.add(convertToDto(notification));
+        }
+        return new NotificationReplayDto(fromDb, lastSeq, truncated);
+    }
+
+    // null, если в буфере нет непрерывного диапазона (sinceSeq, upTo]
+    private List<NotificationDto> fromBuffer(UUID userId, long sinceSeq, long upTo) {
+        NavigableMap<Long, NotificationDto> buffer = buffers.get(userId);
+        if (buffer == null) {
+            return null;
+        }
+        synchronized (buffer) {
+            NavigableMap<Long, NotificationDto> range = buffer.subMap(sinceSeq, false, upTo, true);
+            if (range.size() != upTo - sinceSeq) {
+                return null;
+            }
+            return new ArrayList<>(range.values());
+        }
+    }
+
+    private NotificationDto convertToDto(Notification notification) {
+        NotificationDto dto = new NotificationDto();
+        dto.setId(notification.getId());
+        dto.setUserId(notification.getUserId());
+        dto.setType(notification.getType());
+        dto.setTitle(notification.getTitle());
+        dto.setMessage(notification.getMessage());
+        dto.setIsRead(notification.getIsRead());
+        dto.setRelatedEntityType(notification.getRelatedEntityType());
+        dto.setRelatedEntityId(notification.getRelatedEntityId());
+        dto.setSeq(notification.getSeq());
+        dto.setCreatedAt(notification.getCreatedAt());
+        return dto;
+    }
+}
@@ -1,54 +1,298 @@
 package com.example.notificationservice.service;
 
 import com.example.notificationservice.dto.CreateNotificationRequest;
+import com.example.notificationservice.dto.MarkNotificationsReadRequest;
+import com.example.notificationservice.dto.NotificationDto;
+import com.example.notificationservice.dto.NotificationPageDto;
 import com.example.notificationservice.exception.NotificationNotFoundException;
 import com.example.notificationservice.model.Notification;
 import com.example.notificationservice.repository.NotificationRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_BULK_SIZE = 1000;
+
+    private static final String INSERT_SQL = """
+        INSERT INTO notifications (id, user_id, type, title, message, is_read, related_entity_type, related_entity_id, seq, created_at)
+        VALUES (?, ?, ?, ?, ?, false, ?, ?, ?, ?)
+    """;
+
+    // Счётчики увеличиваются под блокировкой строки, поэтому seq монотонен и без пропусков даже между узлами
+    private static final String ALLOCATE_SEQ_SQL = """
+        INSERT INTO notification_sequences (user_id, last_seq)
+        SELECT * FROM unnest(?::uuid[], ?::bigint[])
+        ON CONFLICT (user_id) DO UPDATE SET last_seq = notification_sequences.last_seq + EXCLUDED.last_seq
+        RETURNING user_id, last_seq
+    """;
+
+    private static final String MARK_READ_BY_IDS_SQL = """
+        UPDATE notifications SET is_read = true
+        WHERE user_id = ? AND is_read = false AND id = ANY(?)
+        RETURNING seq
+    """;
+
+    private static final String MARK_READ_BEFORE_SQL = """
+        UPDATE notifications SET is_read = true
+        WHERE user_id = ? AND is_read = false AND (created_at < ? OR (created_at = ? AND id <= ?))
+        RETURNING seq
+    """;
+
+    private static final String MARK_READ_ALL_SQL = """
+        UPDATE notifications SET is_read = true
+        WHERE user_id = ? AND is_read = false
+        RETURNING seq
+    """;
+
     private final NotificationRepository notificationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationReplayService replayService;
+    private final UnreadCounterService unreadCounterService;
+
+    public NotificationPageDto getUserNotifications(UUID userId, String cursor, int limit) {
+        return getPage(userId, false, cursor, limit);
+    }
+
+    public NotificationPageDto getUnreadNotifications(UUID userId, String cursor, int limit) {
+        return getPage(userId, true, cursor, limit);
+    }
 
-    public List<Notification> getUserNotifications(UUID userId) {
-        return notificationRepository.findByUserIdOrderByCreatedAtDesc(userId);
+    private NotificationPageDto getPage(UUID userId, boolean unreadOnly, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // Берём на одну запись больше, чтобы понять, есть ли следующая страница
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+
+        List<NotificationDto> items;
+        if (cursor == null || cursor.isBlank()) {
+            items = notificationRepository.findFirstPage(userId, unreadOnly, page);
+        } else {
+            NotificationDto after = decodeCursor(cursor);
+            items = notificationRepository.findPageAfter(userId, unreadOnly, after.getCreatedAt(), after.getId(), page);
+        }
+
+        if (items.size() <= pageSize) {
+            return new NotificationPageDto(items, null);
+        }
+
+        List<NotificationDto> pageItems = new ArrayList<>(items.subList(0, pageSize));
+        NotificationDto last = pageItems.get(pageItems.size() - 1);
+        return new NotificationPageDto(pageItems, encodeCursor(last));
+    }
+
+    private String encodeCursor(NotificationDto last) {
+        String raw = last.getCreatedAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
     }
 
-    public List<Notification> getUnreadNotifications(UUID userId) {
-        return notificationRepository.findByUserIdAndIsReadFalseOrderByCreatedAtDesc(userId);
+    private NotificationDto decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            NotificationDto after = new NotificationDto();
+            after.setCreatedAt(LocalDateTime.parse(parts[0]));
+            after.setId(UUID.fromString(parts[1]));
+            return after;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
     }
 
     @Transactional
     public Notification markAsRead(UUID notificationId) {
         Notification notification = notificationRepository.findById(notificationId)
                 .orElseThrow(() -> new NotificationNotFoundException(notificationId));
+
+        // Условный UPDATE: при параллельных прочтениях счётчик уменьшится ровно один раз
+        if (notificationRepository.markReadIfUnread(notificationId) > 0) {
+            afterCommit(() -> unreadCounterService.add(Map.of(notification.getUserId(), -1L)));
+        }
         notification.setIsRead(true);
-        return notificationRepository.save(notification);
+        replayService.markRead(notification);
+        return notification;
     }
 
     @Transactional
     public Notification createNotification(CreateNotificationRequest request) {
-        Notification notification = new Notification();
-        notification.setUserId(request.getUserId());
-        notification.setType(request.getType());
-        notification.setTitle(request.getTitle());
-        notification.setMessage(request.getMessage());
-        notification.setRelatedEntityType(request.getRelatedEntityType());
-        notification.setRelatedEntityId(request.getRelatedEntityId());
+        return createNotifications(List.of(request)).get(0);
+    }
+
+    // Вставка пачки уведомлений одним JDBC batch вместо save() на каждое
+    @Transactional
+    public List<Notification> createNotifications(List<CreateNotificationRequest> requests) {
+        if (requests.size() > MAX_BULK_SIZE) {
+            throw new IllegalArgumentException("Too many notifications in one batch, max " + MAX_BULK_SIZE);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Map<UUID, Long> nextSeq = allocateSequences(requests);
+        List<Notification> notifications = new ArrayList<>(requests.size());
+        List<Object[]> rows = new ArrayList<>(requests.size());
+
+        for (CreateNotificationRequest request : requests) {
+            Notification notification = new Notification();
+            notification.setId(UUID.randomUUID());
+            notification.setUserId(request.getUserId());
+            notification.setType(request.getType());
+            notification.setTitle(request.getTitle());
+            notification.setMessage(request.getMessage());
+            notification.setRelatedEntityType(request.getRelatedEntityType());
+            notification.setRelatedEntityId(request.getRelatedEntityId());
+            notification.setSeq(nextSeq.merge(request.getUserId(), 1L, Long::sum) - 1);
+            notification.setCreatedAt(now);
+            notifications.add(notification);
+
+            rows.add(new Object[]{
+                    notification.getId(),
+                    notification.getUserId(),
+                    notification.getType(),
+                    notification.getTitle(),
+                    notification.getMessage(),
+                    notification.getRelatedEntityType(),
+                    notification.getRelatedEntityId(),
+                    notification.getSeq(),
+                    Timestamp.valueOf(now)
+            });
+        }
+
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            Map<UUID, Long> unreadDeltas = new HashMap<>();
+            notifications.forEach(n -> unreadDeltas.merge(n.getUserId(), 1L, Long::sum));
+            afterCommit(() -> {
+                replayService.remember(notifications);
+                unreadCounterService.add(unreadDeltas);
+            });
+        }
+        return notifications;
+    }
+
+    // Резервирует по одному seq на уведомление одним запросом; возвращает первый свободный seq каждого пользователя
+    private Map<UUID, Long> allocateSequences(List<CreateNotificationRequest> requests) {
+        // Порядок по userId одинаков во всех транзакциях, чтобы блокировки счётчиков не давали дедлоков
+        Map<UUID, Long> counts = new TreeMap<>();
+        for (CreateNotificationRequest request : requests) {
+            counts.merge(request.getUserId(), 1L, Long::sum);
+        }
+
+        Map<UUID, Long> firstSeq = new HashMap<>();
+        if (counts.isEmpty()) {
+            return firstSeq;
+        }
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(ALLOCATE_SEQ_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", counts.keySet().toArray()));
+            ps.setArray(2, con.createArrayOf("bigint", counts.values().toArray()));
+            return ps;
+        }, rs -> {
+            UUID userId = rs.getObject("user_id", UUID.class);
+            firstSeq.put(userId, rs.getLong("last_seq") - counts.get(userId) + 1);
+        });
+        return firstSeq;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // Массовая отметка одним UPDATE: ровно один способ выбора — список id, курсор или явный all=true.
+    // Пустой запрос отклоняется, чтобы ошибка клиента не сбросила все непрочитанные
+    @Transactional
+    public int markManyAsRead(UUID userId, MarkNotificationsReadRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Request body is required");
+        }
+
+        List<UUID> ids = request.getNotificationIds();
+        boolean byIds = ids != null && !ids.isEmpty();
+        boolean byCursor = request.getBeforeCursor() != null && !request.getBeforeCursor().isBlank();
+        boolean all = Boolean.TRUE.equals(request.getAll());
+        if ((byIds ? 1 : 0) + (byCursor ? 1 : 0) + (all ? 1 : 0) != 1) {
+            throw new IllegalArgumentException("Specify exactly one of notificationIds, beforeCursor or all=true");
+        }
+
+        if (all) {
+            return markAllAsRead(userId);
+        }
+        if (byIds) {
+            if (ids.size() > MAX_BULK_SIZE) {
+                throw new IllegalArgumentException("Too many notification ids, max " + MAX_BULK_SIZE);
+            }
+            return markRead(userId, handler -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(MARK_READ_BY_IDS_SQL);
+                ps.setObject(1, userId);
+                ps.setArray(2, con.createArrayOf("uuid", ids.toArray()));
+                return ps;
+            }, handler));
+        }
+
+        NotificationDto before = decodeCursor(request.getBeforeCursor());
+        Timestamp createdAt = Timestamp.valueOf(before.getCreatedAt());
+        return markRead(userId, handler ->
+                jdbcTemplate.query(MARK_READ_BEFORE_SQL, handler, userId, createdAt, createdAt, before.getId()));
+    }
+
+    @Transactional
+    public int markAllAsRead(UUID userId) {
+        return markRead(userId, handler -> jdbcTemplate.query(MARK_READ_ALL_SQL, handler, userId));
+    }
+
+    // Выполняет UPDATE ... RETURNING seq; возвращает число реально изменённых уведомлений
+    private int markRead(UUID userId, Consumer<RowCallbackHandler> update) {
+        List<Long> seqs = new ArrayList<>();
+        int[] updated = {0};
+        update.accept(rs -> {
+            updated[0]++;
+            long seq = rs.getLong("seq");
+            if (!rs.wasNull()) {
+                seqs.add(seq);
+            }
+        });
 
-        return notificationRepository.save(notification);
+        if (updated[0] > 0) {
+            int count = updated[0];
+            afterCommit(() -> {
+                unreadCounterService.add(Map.of(userId, (long) -count));
+                replayService.markRead(userId, seqs);
+            });
+        }
+        return updated[0];
     }
 
     public Long getUnreadCount(UUID userId) {
-        return notificationRepository.countByUserIdAndIsReadFalse(userId);
+        return unreadCounterService.getUnreadCount(userId);
     }
 }
\ No newline at end of file
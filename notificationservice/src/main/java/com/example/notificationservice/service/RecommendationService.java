@@ -9,8 +9,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -19,20 +22,50 @@ public class RecommendationService {
 
     private final RecommendationRepository repository;
     private final ObjectMapper objectMapper;
+    private final LatestRecommendationsCache latestRecommendationsCache;
+
+    // Подписка по WebSocket: из памяти узла, в БД только при промахе
     public RecommendationsDto getLatestRecommendations(UUID userId) {
-        return repository.findLatestByUserId(userId)
-                .map(r -> {
-                    try {
-                        List<Map<String, Object>> list = objectMapper.readValue(
-                                r.getRecommendations(),
-                                new TypeReference<List<Map<String, Object>>>() {}
-                        );
-                        return new RecommendationsDto(list);
-                    } catch (JsonProcessingException e) {
-                        throw new RuntimeException(e);
-                    }
-                })
+        Optional<RecommendationsDto> cached = latestRecommendationsCache.get(userId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        if (latestRecommendationsCache.isKnownAbsent(userId)) {
+            return null;
+        }
+
+        RecommendationsDto dto = repository.findLatestByUserId(userId)
+                .map(this::toDto)
                 .orElse(null);
+        latestRecommendationsCache.put(userId, dto);
+        return dto;
+    }
+
+    // Последние рекомендации для пачки пользователей одним запросом; вызывается по recommendations_ready
+    // и сразу обновляет кэш свежими данными
+    public Map<UUID, RecommendationsDto> getLatestRecommendations(Collection<UUID> userIds) {
+        Map<UUID, RecommendationsDto> result = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return result;
+        }
+        for (Recommendation r : repository.findLatestByUserIds(userIds)) {
+            RecommendationsDto dto = toDto(r);
+            result.put(r.getUserId(), dto);
+            latestRecommendationsCache.put(r.getUserId(), dto);
+        }
+        return result;
+    }
+
+    private RecommendationsDto toDto(Recommendation r) {
+        try {
+            List<Map<String, Object>> list = objectMapper.readValue(
+                    r.getRecommendations(),
+                    new TypeReference<List<Map<String, Object>>>() {}
+            );
+            return new RecommendationsDto(list);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
     }
 }
 
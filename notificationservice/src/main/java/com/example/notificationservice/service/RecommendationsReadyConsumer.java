@@ -2,13 +2,18 @@ package com.example.notificationservice.service;
 
 
 import com.example.notificationservice.dto.CreateNotificationRequest;
+import com.example.notificationservice.dto.RecommendationsDto;
 import com.example.notificationservice.dto.RecommendationsReadyEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -26,46 +31,66 @@ public class RecommendationsReadyConsumer {
             groupId = "notification-service",
             containerFactory = "recommendationsKafkaListenerContainerFactory"
     )
-    @Transactional
-    public void consume(RecommendationsReadyEvent event) {
-
-        try {
-            UUID userId = UUID.fromString(event.getUserId());
-
-            if (Boolean.TRUE.equals(event.getRecommendationsReady())) {
-
-                // 1. Читаем рекомендации из БД
-                var recommendations = recommendationService.getLatestRecommendations(userId);
-
-                // 2. Отправляем по WebSocket
-                if (recommendations != null) {
-                    webSocketRecommendationService.sendRecommendations(userId, recommendations);
+    public void consume(List<RecommendationsReadyEvent> events) {
+        Set<UUID> readyUsers = new LinkedHashSet<>();
+        List<CreateNotificationRequest> readyNotifications = new ArrayList<>();
+        List<CreateNotificationRequest> errorNotifications = new ArrayList<>();
+
+        for (RecommendationsReadyEvent event : events) {
+            if (event == null) {
+                continue;
+            }
+            try {
+                UUID userId = UUID.fromString(event.getUserId());
+
+                if (Boolean.TRUE.equals(event.getRecommendationsReady())) {
+                    readyUsers.add(userId);
+                    readyNotifications.add(readyNotification(userId));
+                } else {
+                    errorNotifications.add(errorNotification(userId));
                 }
+            } catch (Exception e) {
+                log.error("Ошибка обработки recommendations_ready: {}", e.getMessage(), e);
+            }
+        }
 
-                // 3. Создаём уведомление + пушим по WebSocket
-                CreateNotificationRequest notificationRequest = new CreateNotificationRequest();
-                notificationRequest.setUserId(userId);
-                notificationRequest.setType("RECOMMENDATIONS_READY");
-                notificationRequest.setTitle("🎯 Новые финансовые рекомендации");
-                notificationRequest.setMessage("Мы обновили список предложений, подходящих вашему профилю.");
-                notificationRequest.setRelatedEntityType("RECOMMENDATION");
-
-                notificationCoordinator.createNotificationWithWebSocket(notificationRequest);
+        // Ошибка БД пробрасывается: DefaultErrorHandler повторит пачку, и оффсеты не закоммитятся раньше времени
+        try {
+            // 1. Создаём уведомления одним batch, их WebSocket-пуши уходят после коммита
+            if (!readyNotifications.isEmpty()) {
+                notificationCoordinator.createNotificationsWithWebSocket(readyNotifications);
+            }
+            if (!errorNotifications.isEmpty()) {
+                notificationService.createNotifications(errorNotifications);
+            }
 
-            } else {
+            // 2. Читаем рекомендации всей пачки одним запросом и отправляем по WebSocket
+            Map<UUID, RecommendationsDto> recommendations = recommendationService.getLatestRecommendations(readyUsers);
+            recommendations.forEach(webSocketRecommendationService::sendRecommendations);
 
-                CreateNotificationRequest notificationRequest = new CreateNotificationRequest();
-                notificationRequest.setUserId(userId);
-                notificationRequest.setType("RECOMMENDATIONS_ERROR");
-                notificationRequest.setTitle("⚠️ Ошибка формирования рекомендаций");
-                notificationRequest.setMessage("Не удалось создать рекомендации. Попробуйте позже.");
-                notificationRequest.setRelatedEntityType("RECOMMENDATION");
+        } catch (RuntimeException e) {
+            log.error("Ошибка обработки пачки recommendations_ready из {} событий: {}", events.size(), e.getMessage());
+            throw e;
+        }
+    }
 
-                notificationService.createNotification(notificationRequest);
-            }
+    private CreateNotificationRequest readyNotification(UUID userId) {
+        CreateNotificationRequest notificationRequest = new CreateNotificationRequest();
+        notificationRequest.setUserId(userId);
+        notificationRequest.setType("RECOMMENDATIONS_READY");
+        notificationRequest.setTitle("🎯 Новые финансовые рекомендации");
+        notificationRequest.setMessage("Мы обновили список предложений, подходящих вашему профилю.");
+        notificationRequest.setRelatedEntityType("RECOMMENDATION");
+        return notificationRequest;
+    }
 
-        } catch (Exception e) {
-            log.error("Ошибка обработки recommendations_ready: {}", e.getMessage(), e);
-        }
+    private CreateNotificationRequest errorNotification(UUID userId) {
+        CreateNotificationRequest notificationRequest = new CreateNotificationRequest();
+        notificationRequest.setUserId(userId);
+        notificationRequest.setType("RECOMMENDATIONS_ERROR");
+        notificationRequest.setTitle("⚠️ Ошибка формирования рекомендаций");
+        notificationRequest.setMessage("Не удалось создать рекомендации. Попробуйте позже.");
+        notificationRequest.setRelatedEntityType("RECOMMENDATION");
+        return notificationRequest;
     }
 }
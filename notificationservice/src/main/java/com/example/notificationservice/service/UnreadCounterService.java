@@ -0,0 +1,233 @@
+package com.example.notificationservice.service;
+
+import com.example.notificationservice.repository.NotificationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Счётчики непрочитанных уведомлений в Redis. Ключ появляется при первом чтении (пересчёт из БД),
+ * дальше меняется атомарно при создании и прочтении и периодически сверяется с БД.
+ * На время пересчёта или сверки рядом заводится ключ накопления: дельты, пришедшие пока идёт COUNT,
+ * копятся в нём и прибавляются к посчитанному значению, а не теряются и не затираются. Допустимый дрейф —
+ * дельта транзакции, закоммиченной между заведением ключа накопления и снимком COUNT: она учтётся дважды
+ * до следующей сверки.
+ */
+@Slf4j
+@Service
+public class UnreadCounterService {
+
+    private static final String KEY_PREFIX = "notifications:unread:";
+    private static final String PENDING_KEY_PREFIX = "notifications:unread-pending:";
+    private static final int RECONCILE_BATCH = 500;
+
+    // Дольше этого пересчёт не ждём: без ключа накопления сверка не перезаписывает счётчик
+    private static final Duration PENDING_TTL = Duration.ofMinutes(1);
+
+    // Меняем только существующий ключ: отсутствующий будет честно пересчитан при следующем чтении.
+    // Если идёт пересчёт, дельта дополнительно копится в ключе накопления
+    private static final byte[] ADD_IF_EXISTS_SCRIPT = """
+        if redis.call('EXISTS', KEYS[2]) == 1 then
+            redis.call('INCRBY', KEYS[2], ARGV[1])
+        end
+        if redis.call('EXISTS', KEYS[1]) == 1 then
+            local value = redis.call('INCRBY', KEYS[1], ARGV[1])
+            if value < 0 then
+                redis.call('SET', KEYS[1], 0, 'KEEPTTL')
+                return 0
+            end
+            return value
+        end
+        return -1
+    """.getBytes(StandardCharsets.UTF_8);
+
+    // Ключ мог собрать параллельный пересчёт: тогда он уже учёл накопленное, берём его значение
+    private static final byte[] FINISH_REBUILD_SCRIPT = """
+        local current = redis.call('GET', KEYS[1])
+        if current then
+            return tonumber(current)
+        end
+        local pending = tonumber(redis.call('GET', KEYS[2]) or '0')
+        redis.call('DEL', KEYS[2])
+        local value = math.max(tonumber(ARGV[1]) + pending, 0)
+        redis.call('SET', KEYS[1], value, 'PX', ARGV[2])
+        return value
+    """.getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] START_RECONCILE_SCRIPT = """
+        if redis.call('EXISTS', KEYS[1]) == 1 then
+            redis.call('SET', KEYS[2], 0, 'PX', ARGV[1])
+            return 1
+        end
+        return 0
+    """.getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] FINISH_RECONCILE_SCRIPT = """
+        local pending = redis.call('GET', KEYS[2])
+        redis.call('DEL', KEYS[2])
+        if pending and redis.call('EXISTS', KEYS[1]) == 1 then
+            redis.call('SET', KEYS[1], math.max(tonumber(ARGV[1]) + tonumber(pending), 0), 'KEEPTTL')
+            return 1
+        end
+        return 0
+    """.getBytes(StandardCharsets.UTF_8);
+
+    private static final String COUNT_UNREAD_SQL = """
+        SELECT user_id, COUNT(*) AS unread
+        FROM notifications
+        WHERE user_id = ANY(?) AND is_read = false
+        GROUP BY user_id
+    """;
+
+    private final StringRedisTemplate redisTemplate;
+    private final NotificationRepository notificationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+
+    public UnreadCounterService(StringRedisTemplate redisTemplate, NotificationRepository notificationRepository,
+                                JdbcTemplate jdbcTemplate,
+                                @Value("${app.notifications.unread-counter.ttl:7d}") Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.notificationRepository = notificationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+    }
+
+    public long getUnreadCount(UUID userId) {
+        try {
+            String cached = redisTemplate.opsForValue().get(key(userId));
+            if (cached != null) {
+                return Long.parseLong(cached);
+            }
+        } catch (Exception e) {
+            log.warn("Unread counter read failed for {}: {}", userId, e.getMessage());
+            return notificationRepository.countByUserIdAndIsReadFalse(userId);
+        }
+
+        // Ключ накопления заводим до COUNT, чтобы дельты, пришедшие после снимка, не пропали
+        try {
+            redisTemplate.opsForValue().setIfAbsent(pendingKey(userId), "0", PENDING_TTL);
+        } catch (Exception e) {
+            log.warn("Unread counter rebuild failed for {}: {}", userId, e.getMessage());
+            return notificationRepository.countByUserIdAndIsReadFalse(userId);
+        }
+
+        long count = notificationRepository.countByUserIdAndIsReadFalse(userId);
+        try {
+            Long value = redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands().eval(
+                    FINISH_REBUILD_SCRIPT, ReturnType.INTEGER, 2,
+                    bytes(key(userId)), bytes(pendingKey(userId)),
+                    bytes(Long.toString(count)), bytes(Long.toString(ttl.toMillis()))));
+            return value != null ? value : count;
+        } catch (Exception e) {
+            log.warn("Unread counter rebuild failed for {}: {}", userId, e.getMessage());
+            return count;
+        }
+    }
+
+    // Вызывается после коммита: одна пачка изменений уходит в Redis одним pipeline
+    public void add(Map<UUID, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                deltas.forEach((userId, delta) -> connection.scriptingCommands().eval(
+                        ADD_IF_EXISTS_SCRIPT, ReturnType.INTEGER, 2,
+                        bytes(key(userId)), bytes(pendingKey(userId)), bytes(Long.toString(delta))));
+                return null;
+            });
+        } catch (Exception e) {
+            // Устаревший счётчик опаснее отсутствующего: сбрасываем, следующее чтение пересчитает
+            log.warn("Unread counter update failed, dropping {} counters: {}", deltas.size(), e.getMessage());
+            try {
+                redisTemplate.delete(deltas.keySet().stream()
+                        .flatMap(userId -> Stream.of(key(userId), pendingKey(userId)))
+                        .toList());
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.notifications.unread-counter.reconcile-ms:600000}")
+    public void reconcile() {
+        int reconciled = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(RECONCILE_BATCH).build();
+
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            List<UUID> batch = new ArrayList<>(RECONCILE_BATCH);
+            while (cursor.hasNext()) {
+                batch.add(UUID.fromString(cursor.next().substring(KEY_PREFIX.length())));
+                if (batch.size() == RECONCILE_BATCH) {
+                    reconciled += reconcileBatch(batch);
+                    batch.clear();
+                }
+            }
+            reconciled += reconcileBatch(batch);
+            log.debug("Unread counters reconciled: {}", reconciled);
+        } catch (Exception e) {
+            log.warn("Unread counter reconciliation failed after {} users: {}", reconciled, e.getMessage());
+        }
+    }
+
+    private int reconcileBatch(List<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+
+        // Сначала ключи накопления, потом COUNT: дельты после снимка лягут поверх посчитанного
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            userIds.forEach(userId -> connection.scriptingCommands().eval(
+                    START_RECONCILE_SCRIPT, ReturnType.INTEGER, 2,
+                    bytes(key(userId)), bytes(pendingKey(userId)), bytes(Long.toString(PENDING_TTL.toMillis()))));
+            return null;
+        });
+
+        Map<UUID, Long> counts = new HashMap<>();
+        userIds.forEach(userId -> counts.put(userId, 0L));
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(COUNT_UNREAD_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", userIds.toArray()));
+            return ps;
+        }, rs -> {
+            counts.put(rs.getObject("user_id", UUID.class), rs.getLong("unread"));
+        });
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            counts.forEach((userId, count) -> connection.scriptingCommands().eval(
+                    FINISH_RECONCILE_SCRIPT, ReturnType.INTEGER, 2,
+                    bytes(key(userId)), bytes(pendingKey(userId)), bytes(Long.toString(count))));
+            return null;
+        });
+        return userIds.size();
+    }
+
+    private String key(UUID userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    private String pendingKey(UUID userId) {
+        return PENDING_KEY_PREFIX + userId;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
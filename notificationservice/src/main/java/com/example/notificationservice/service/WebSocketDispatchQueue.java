@@ -0,0 +1,202 @@
+package com.example.notificationservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Асинхронная отправка по WebSocket вне транзакций БД. Внутри транзакции отправка откладывается до коммита,
+ * после отката не уходит вовсе. Пользователь закреплён за одной дорожкой-потоком, поэтому порядок его сообщений сохраняется.
+ * При переполненной дорожке уведомление отбрасывается (оно есть в БД и догружается по seq), а снимок
+ * откладывается и переотправляется позже: реплея для снимков нет, иначе клиент остался бы со старым.
+ */
+@Slf4j
+@Service
+public class WebSocketDispatchQueue {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MeterRegistry meterRegistry;
+    private final List<ThreadPoolExecutor> lanes = new ArrayList<>();
+    // Ещё не отправленные снимки по ключу userId|destination: новый снимок заменяет старый в очереди
+    private final Map<String, Object> pendingSnapshots = new ConcurrentHashMap<>();
+    // Снимки, не поместившиеся в дорожку: сам payload остаётся в pendingSnapshots и продолжает обновляться
+    private final Map<String, DeferredSnapshot> deferredSnapshots = new ConcurrentHashMap<>();
+
+    private record DeferredSnapshot(UUID userId, String destination, long enqueuedAt) {
+    }
+
+    public WebSocketDispatchQueue(SimpMessagingTemplate messagingTemplate, MeterRegistry meterRegistry,
+                                  @Value("${app.websocket.dispatch.lanes:4}") int laneCount,
+                                  @Value("${app.websocket.dispatch.capacity:10000}") int capacity) {
+        this.messagingTemplate = messagingTemplate;
+        this.meterRegistry = meterRegistry;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        for (int i = 0; i < laneCount; i++) {
+            lanes.add(new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "ws-dispatch-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy()));
+        }
+
+        Gauge.builder("websocket.dispatch.queue.size", lanes,
+                        executors -> executors.stream().mapToInt(executor -> executor.getQueue().size()).sum())
+                .description("Pushes waiting to be sent")
+                .register(meterRegistry);
+        Gauge.builder("websocket.dispatch.snapshot.deferred", deferredSnapshots, Map::size)
+                .description("Snapshots waiting for room in a full dispatch lane")
+                .register(meterRegistry);
+    }
+
+    public void sendToUser(UUID userId, String destination, Object payload) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(userId, destination, payload);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(userId, destination, payload);
+            }
+        });
+    }
+
+    // Прогноз и рекомендации — полные снимки: клиенту нужен только последний, промежуточные можно не слать
+    public void sendSnapshotToUser(UUID userId, String destination, Object payload) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueueSnapshot(userId, destination, payload);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueueSnapshot(userId, destination, payload);
+            }
+        });
+    }
+
+    private void enqueue(UUID userId, String destination, Object payload) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            lane(userId).execute(() -> send(userId, destination, payload, enqueuedAt));
+        } catch (RejectedExecutionException e) {
+            // Уведомление уже сохранено в БД, клиент догрузит его через resume по seq
+            recordDropped(userId, destination);
+        }
+    }
+
+    private void enqueueSnapshot(UUID userId, String destination, Object payload) {
+        String key = userId + "|" + destination;
+        if (pendingSnapshots.put(key, payload) != null) {
+            Counter.builder("websocket.dispatch.coalesced")
+                    .description("Snapshots replaced by a newer one before they were sent")
+                    .tag("destination", destination)
+                    .register(meterRegistry)
+                    .increment();
+            return;
+        }
+
+        if (!submitSnapshot(key, userId, destination, System.nanoTime())) {
+            deferSnapshot(key, userId, destination);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.websocket.dispatch.snapshot-retry-ms:1000}")
+    public void retryDeferredSnapshots() {
+        // Снимаем отметку до постановки: снимок, пришедший после отправки, должен встать в очередь сам
+        deferredSnapshots.forEach((key, deferred) -> {
+            if (deferredSnapshots.remove(key, deferred)
+                    && !submitSnapshot(key, deferred.userId(), deferred.destination(), deferred.enqueuedAt())) {
+                deferredSnapshots.putIfAbsent(key, deferred);
+            }
+        });
+    }
+
+    private boolean submitSnapshot(String key, UUID userId, String destination, long enqueuedAt) {
+        try {
+            lane(userId).execute(() -> {
+                Object latest = pendingSnapshots.remove(key);
+                if (latest != null) {
+                    send(userId, destination, latest, enqueuedAt);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void deferSnapshot(String key, UUID userId, String destination) {
+        deferredSnapshots.putIfAbsent(key, new DeferredSnapshot(userId, destination, System.nanoTime()));
+        Counter.builder("websocket.dispatch.snapshot.rejected")
+                .description("Snapshots that did not fit into a full dispatch lane and were deferred")
+                .tag("destination", destination)
+                .register(meterRegistry)
+                .increment();
+        log.warn("WebSocket dispatch queue is full, deferring {} for user {}", destination, userId);
+    }
+
+    private void recordDropped(UUID userId, String destination) {
+        Counter.builder("websocket.dispatch.dropped")
+                .description("Notifications dropped because the dispatch queue was full")
+                .tag("destination", destination)
+                .register(meterRegistry)
+                .increment();
+        log.warn("WebSocket dispatch queue is full, dropping {} for user {}", destination, userId);
+    }
+
+    private void send(UUID userId, String destination, Object payload, long enqueuedAt) {
+        String outcome = "success";
+        try {
+            messagingTemplate.convertAndSendToUser(userId.toString(), destination, payload);
+        } catch (Exception e) {
+            outcome = "error";
+            log.error("Ошибка отправки {} пользователю {}: {}", destination, userId, e.getMessage());
+        } finally {
+            Timer.builder("websocket.dispatch.latency")
+                    .description("Time from enqueue until the push was handed to the broker")
+                    .tag("destination", destination)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private ExecutorService lane(UUID userId) {
+        return lanes.get(Math.floorMod(userId.hashCode(), lanes.size()));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        lanes.forEach(ExecutorService::shutdown);
+        for (ExecutorService lane : lanes) {
+            lane.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.example.notificationservice.dto.ForecastDto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.UUID;
@@ -14,27 +13,23 @@ import java.util.UUID;
 @Slf4j
 public class WebSocketForecastService {
 
-    private final SimpMessagingTemplate messagingTemplate;
+    private final WebSocketDispatchQueue dispatchQueue;
     private final ForecastService forecastService;
+    private final WebSocketPresenceService presenceService;
 
     @Value("${minio.public-url:http://localhost:9000/ml-charts}")
     private String minioPublicUrl;
 
     public void sendForecastToUser(UUID userId, ForecastDto forecast) {
-        if (forecast == null) {
+        String destination = "/queue/forecasts";
+        if (forecast == null || !presenceService.shouldPush(userId, destination)) {
             return;
         }
 
         try {
             forecastService.enrichChartUrlsWithFullPath(forecast, minioPublicUrl);
 
-            String destination = "/queue/forecasts";
-
-            messagingTemplate.convertAndSendToUser(
-                    userId.toString(),
-                    destination,
-                    forecast
-            );
+            dispatchQueue.sendSnapshotToUser(userId, destination, forecast);
 
         } catch (Exception e) {
             log.error("Ошибка отправки прогноза пользователю {}: {}", userId, e.getMessage(), e);
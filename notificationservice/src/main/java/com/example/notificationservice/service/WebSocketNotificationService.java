@@ -20,14 +20,16 @@ public class WebSocketNotificationService {
 
     private final SimpMessagingTemplate messagingTemplate;
     private final NotificationRepository notificationRepository;
+    private final WebSocketPresenceService presenceService;
+    private final NotificationService notificationService;
+    private final WebSocketDispatchQueue dispatchQueue;
 
     public void sendNotificationToUser(UUID userId, NotificationDto notification) {
         String destination = "/queue/notifications";
-        messagingTemplate.convertAndSendToUser(
-                userId.toString(),
-                destination,
-                notification
-        );
+        if (!presenceService.shouldPush(userId, destination)) {
+            return;
+        }
+        dispatchQueue.sendToUser(userId, destination, notification);
     }
 
     public void broadcastNotification(NotificationDto notification) {
@@ -46,8 +48,7 @@ public class WebSocketNotificationService {
                 throw new NotificationAccessDeniedException(notificationId, userId);
             }
 
-            notification.setIsRead(true);
-            Notification updatedNotification = notificationRepository.save(notification);
+            Notification updatedNotification = notificationService.markAsRead(notificationId);
 
             NotificationDto dto = convertToDto(updatedNotification);
             sendNotificationToUser(userId, dto);
@@ -73,6 +74,7 @@ public class WebSocketNotificationService {
         dto.setIsRead(notification.getIsRead());
         dto.setRelatedEntityType(notification.getRelatedEntityType());
         dto.setRelatedEntityId(notification.getRelatedEntityId());
+        dto.setSeq(notification.getSeq());
         dto.setCreatedAt(notification.getCreatedAt());
         return dto;
     }
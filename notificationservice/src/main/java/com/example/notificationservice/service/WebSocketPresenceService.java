@@ -0,0 +1,204 @@
+package com.example.notificationservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Реестр подключённых по WebSocket пользователей. Локальные сессии узла учитываются сразу по событиям STOMP,
+ * общий вид кластера собирается из Redis-множеств всех живых узлов и обновляется периодически.
+ * Множество узла — ZSET с временем последнего подтверждения каждого пользователя: подключения и отключения
+ * меняют его на месте, heartbeat продлевает своих, а неподтверждённые за node-ttl-ms выпадают сами.
+ */
+@Slf4j
+@Service
+public class WebSocketPresenceService {
+
+    private static final String NODES_KEY = "ws:presence:nodes";
+    private static final String NODE_KEY_PREFIX = "ws:presence:node:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String nodeId;
+
+    private final Map<String, String> sessionUsers = new ConcurrentHashMap<>();
+    // Число сессий пользователя на узле; счёт и удаление меняются только атомарно через merge/compute
+    private final Map<String, Integer> localUsers = new ConcurrentHashMap<>();
+    private volatile Set<String> clusterUsers = Collections.emptySet();
+    // Без актуального вида кластера не отбрасываем пуши: лучше лишняя отправка, чем потерянная
+    private volatile boolean clusterViewHealthy;
+
+    @Value("${app.websocket.presence.node-ttl-ms:30000}")
+    private long nodeTtlMs;
+
+    public WebSocketPresenceService(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry,
+                                    @Value("${spring.application.name:notificationservice}") String applicationName) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.nodeId = applicationName + "-" + UUID.randomUUID();
+
+        Gauge.builder("websocket.presence.local.users", localUsers, Map::size)
+                .description("Users with at least one WebSocket session on this node")
+                .register(meterRegistry);
+        Gauge.builder("websocket.presence.local.sessions", sessionUsers, Map::size)
+                .description("WebSocket sessions on this node")
+                .register(meterRegistry);
+        Gauge.builder("websocket.presence.cluster.users", this, service -> service.clusterUsers.size())
+                .description("Users connected to any notification node")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (user == null || sessionId == null) {
+            return;
+        }
+
+        String userId = user.getName();
+        sessionUsers.put(sessionId, userId);
+        // Счёт меняется атомарно, а в Redis идём уже вне compute, только на переходе 0 -> 1
+        if (localUsers.merge(userId, 1, Integer::sum) == 1) {
+            syncMember(userId);
+        }
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        String userId = sessionUsers.remove(event.getSessionId());
+        if (userId == null) {
+            return;
+        }
+
+        if (localUsers.computeIfPresent(userId, (id, sessions) -> sessions > 1 ? sessions - 1 : null) == null) {
+            syncMember(userId);
+        }
+    }
+
+    public boolean isOnline(UUID userId) {
+        String id = userId.toString();
+        return localUsers.containsKey(id) || !clusterViewHealthy || clusterUsers.contains(id);
+    }
+
+    // Для путей отправки: если пользователя нет ни на одном узле, сериализацию и доставку пропускаем
+    public boolean shouldPush(UUID userId, String destination) {
+        if (isOnline(userId)) {
+            return true;
+        }
+        Counter.builder("websocket.push.skipped")
+                .description("Pushes skipped because the user had no open session")
+                .tag("destination", destination)
+                .register(meterRegistry)
+                .increment();
+        return false;
+    }
+
+    // Продлеваем своих пользователей и вычищаем неподтверждённых: так множество само восстанавливается
+    // после сбоев Redis. Пользователь, отключившийся во время heartbeat, может вернуться в множество,
+    // но не дольше чем на node-ttl-ms — это лишний пуш, а не потерянный
+    @Scheduled(fixedDelayString = "${app.websocket.presence.heartbeat-ms:10000}")
+    public void heartbeat() {
+        redis(() -> {
+            String key = nodeKey();
+            long now = System.currentTimeMillis();
+            Set<ZSetOperations.TypedTuple<String>> members = localUsers.keySet().stream()
+                    .map(userId -> ZSetOperations.TypedTuple.of(userId, (double) now))
+                    .collect(Collectors.toSet());
+            if (!members.isEmpty()) {
+                redisTemplate.opsForZSet().add(key, members);
+            }
+            redisTemplate.opsForZSet().removeRangeByScore(key, 0, now - nodeTtlMs);
+            redisTemplate.expire(key, nodeTtlMs, TimeUnit.MILLISECONDS);
+            redisTemplate.opsForZSet().add(NODES_KEY, nodeId, now);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.websocket.presence.refresh-ms:5000}")
+    public void refreshClusterView() {
+        try {
+            long now = System.currentTimeMillis();
+            long aliveSince = now - nodeTtlMs;
+            redisTemplate.opsForZSet().removeRangeByScore(NODES_KEY, 0, aliveSince);
+
+            Set<String> nodes = redisTemplate.opsForZSet().range(NODES_KEY, 0, -1);
+            Set<String> users = new HashSet<>();
+            if (nodes != null) {
+                for (String node : nodes) {
+                    Set<String> nodeUsers = redisTemplate.opsForZSet()
+                            .rangeByScore(NODE_KEY_PREFIX + node, aliveSince, Double.POSITIVE_INFINITY);
+                    if (nodeUsers != null) {
+                        users.addAll(nodeUsers);
+                    }
+                }
+            }
+
+            clusterUsers = users;
+            clusterViewHealthy = true;
+        } catch (Exception e) {
+            clusterViewHealthy = false;
+            log.warn("Failed to refresh WebSocket presence from Redis: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        redis(() -> {
+            redisTemplate.delete(nodeKey());
+            redisTemplate.opsForZSet().remove(NODES_KEY, nodeId);
+        });
+    }
+
+    // ZADD и ZREM параллельных подключения и отключения могут прийти в Redis в любом порядке,
+    // поэтому после записи сверяемся с локальным счётом ещё раз: последним остаётся актуальное состояние
+    private void syncMember(String userId) {
+        redis(() -> {
+            boolean online = localUsers.containsKey(userId);
+            writeMember(userId, online);
+            if (localUsers.containsKey(userId) != online) {
+                writeMember(userId, !online);
+            }
+        });
+    }
+
+    private void writeMember(String userId, boolean online) {
+        if (online) {
+            redisTemplate.opsForZSet().add(nodeKey(), userId, System.currentTimeMillis());
+        } else {
+            redisTemplate.opsForZSet().remove(nodeKey(), userId);
+        }
+    }
+
+    private String nodeKey() {
+        return NODE_KEY_PREFIX + nodeId;
+    }
+
+    private void redis(Runnable action) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            log.warn("WebSocket presence update in Redis failed: {}", e.getMessage());
+        }
+    }
+}
@@ -2,7 +2,6 @@ package com.example.notificationservice.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.UUID;
@@ -12,19 +11,15 @@ import java.util.UUID;
 @Slf4j
 public class WebSocketRecommendationService {
 
-    private final SimpMessagingTemplate messagingTemplate;
+    private final WebSocketDispatchQueue dispatchQueue;
+    private final WebSocketPresenceService presenceService;
 
     public void sendRecommendations(UUID userId, Object recommendationsDto) {
-        try {
-            messagingTemplate.convertAndSendToUser(
-                    userId.toString(),
-                    "/queue/recommendations",
-                    recommendationsDto
-            );
-            log.info("Рекомендации отправлены WS пользователю {}", userId);
-        } catch (Exception e) {
-            log.error("Ошибка отправки рекомендаций WS {}: {}", userId, e.getMessage());
+        if (!presenceService.shouldPush(userId, "/queue/recommendations")) {
+            return;
         }
+        dispatchQueue.sendSnapshotToUser(userId, "/queue/recommendations", recommendationsDto);
+        log.debug("Рекомендации поставлены в очередь WS для пользователя {}", userId);
     }
 }
 
@@ -0,0 +1,161 @@
+package com.example.notificationservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketMessagingAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.BrokerAvailabilityEvent;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Два узла с WebSocketConfig в режиме relay поверх одного RabbitMQ: сообщение пользователю,
+ * отправленное на узле A, должно дойти до его сессии на узле B.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class WebSocketBrokerRelayIntegrationTest {
+
+	private static final String LOGIN = "finpulse";
+	private static final String PASSCODE = "password";
+
+	@Container
+	static final GenericContainer<?> rabbitmq = new GenericContainer<>(DockerImageName.parse("rabbitmq:3-management-alpine"))
+			.withCommand("sh", "-c", "rabbitmq-plugins enable --offline rabbitmq_stomp && rabbitmq-server")
+			.withEnv("RABBITMQ_DEFAULT_USER", LOGIN)
+			.withEnv("RABBITMQ_DEFAULT_PASS", PASSCODE)
+			.withExposedPorts(61613)
+			.waitingFor(Wait.forLogMessage(".*Server startup complete.*", 1)
+					.withStartupTimeout(Duration.ofMinutes(2)));
+
+	@Test
+	void userDestinationReachesSessionOnAnotherNode() throws Exception {
+		try (ConfigurableApplicationContext nodeA = startNode();
+			 ConfigurableApplicationContext nodeB = startNode()) {
+
+			String userId = UUID.randomUUID().toString();
+			BlockingQueue<Map<String, Object>> received = new LinkedBlockingQueue<>();
+			StompSession session = connect(nodeB, userId, received);
+
+			// Подписка регистрируется в брокере асинхронно, поэтому шлём до первого полученного сообщения
+			SimpMessagingTemplate template = nodeA.getBean(SimpMessagingTemplate.class);
+			Map<String, Object> payload = null;
+			long deadline = System.currentTimeMillis() + 30_000;
+			while (payload == null && System.currentTimeMillis() < deadline) {
+				template.convertAndSendToUser(userId, "/queue/notifications", Map.of("title", "cross-node"));
+				payload = received.poll(1, TimeUnit.SECONDS);
+			}
+
+			assertThat(payload).containsEntry("title", "cross-node");
+			session.disconnect();
+		}
+	}
+
+	private ConfigurableApplicationContext startNode() throws InterruptedException {
+		CountDownLatch brokerAvailable = new CountDownLatch(1);
+		ApplicationListener<ApplicationEvent> listener = event -> {
+			if (event instanceof BrokerAvailabilityEvent availability && availability.isBrokerAvailable()) {
+				brokerAvailable.countDown();
+			}
+		};
+
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(RelayNode.class)
+				.web(WebApplicationType.SERVLET)
+				.listeners(listener)
+				.properties(
+						"server.port=0",
+						"spring.main.banner-mode=off",
+						"app.websocket.broker.relay-enabled=true",
+						"app.websocket.broker.relay-host=" + rabbitmq.getHost(),
+						"app.websocket.broker.relay-port=" + rabbitmq.getMappedPort(61613),
+						"app.websocket.broker.login=" + LOGIN,
+						"app.websocket.broker.passcode=" + PASSCODE)
+				.run();
+
+		assertThat(brokerAvailable.await(30, TimeUnit.SECONDS)).isTrue();
+		return context;
+	}
+
+	private StompSession connect(ConfigurableApplicationContext node, String userId,
+								 BlockingQueue<Map<String, Object>> received) throws Exception {
+		WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+		client.setMessageConverter(new MappingJackson2MessageConverter());
+
+		int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+		StompSession session = client.connectAsync("ws://localhost:{port}/ws/notifications/native?userId={userId}",
+						new StompSessionHandlerAdapter() {
+						}, port, userId)
+				.get(10, TimeUnit.SECONDS);
+
+		session.subscribe("/user/queue/notifications", new StompFrameHandler() {
+			@Override
+			public Type getPayloadType(StompHeaders headers) {
+				return Map.class;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public void handleFrame(StompHeaders headers, Object payload) {
+				received.add((Map<String, Object>) payload);
+			}
+		});
+		return session;
+	}
+
+	// Только веб-слой и WebSocketConfig, без БД, Kafka и Redis
+	@Configuration(proxyBeanMethods = false)
+	@ImportAutoConfiguration({
+			PropertyPlaceholderAutoConfiguration.class,
+			JacksonAutoConfiguration.class,
+			ServletWebServerFactoryAutoConfiguration.class,
+			DispatcherServletAutoConfiguration.class,
+			WebSocketServletAutoConfiguration.class,
+			WebSocketMessagingAutoConfiguration.class
+	})
+	@EnableConfigurationProperties({WebSocketBrokerProperties.class, WebSocketTransportProperties.class})
+	@Import({WebSocketConfig.class, BinaryPayloadInterceptor.class})
+	static class RelayNode {
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.example.userservice.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+public class KafkaTopicsConfig {
+
+    // Компактируемый топик: по каждому userId хранится последнее состояние
+    @Bean
+    public NewTopic userLifecycleEventsTopic() {
+        return TopicBuilder.name("user_lifecycle_events")
+                .partitions(3)
+                .replicas(1)
+                .compact()
+                .build();
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.userservice.controller;
 
 import com.example.userservice.dto.UserProfile;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.example.userservice.repository.UserRepository;
 import com.example.userservice.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -8,10 +10,15 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Slf4j
@@ -23,6 +30,9 @@ public class UserController {
 
     private final UserService userService;
     private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+
+    private static final int MAX_BATCH_SIZE = 5000;
 
     @GetMapping("/me")
     @Operation(summary = "Получить профиль", description = "Возвращает данные текущего пользователя")
@@ -62,4 +72,48 @@ public class UserController {
                 .map(user -> ResponseEntity.ok(user.getBankClientId()))
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    @PutMapping("/{userId}/active")
+    @Operation(summary = "Activate or deactivate a user", description = "For internal use by other services")
+    public ResponseEntity<Void> setActive(@PathVariable UUID userId, @RequestParam boolean active) {
+        userService.setActive(userId, active);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/bank-client-ids")
+    @Operation(summary = "Resolve bankClientIds for a batch of users", description = "For internal use by other services")
+    public ResponseEntity<Map<UUID, String>> getBankClientIds(@RequestBody List<UUID> userIds) {
+        if (userIds.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(userService.getBankClientIds(userIds));
+    }
+
+    @PostMapping("/by-bank-client-ids")
+    @Operation(summary = "Resolve user IDs for a batch of bankClientIds", description = "For internal use by other services")
+    public ResponseEntity<Map<String, UUID>> getUserIdsByBankClientIds(@RequestBody List<String> bankClientIds) {
+        if (bankClientIds.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(userService.getUserIdsByBankClientIds(bankClientIds));
+    }
+
+    @GetMapping(value = "/bank-client-ids", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Stream userId -> bankClientId of all active users", description = "For internal use by other services")
+    public ResponseEntity<StreamingResponseBody> streamBankClientIds() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartObject();
+                userService.forEachActiveMapping(mapping -> {
+                    try {
+                        generator.writeStringField(mapping.getUserId().toString(), mapping.getBankClientId());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
 }
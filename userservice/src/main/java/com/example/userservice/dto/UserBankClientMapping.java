@@ -0,0 +1,8 @@
+package com.example.userservice.dto;
+
+import java.util.UUID;
+
+public interface UserBankClientMapping {
+    UUID getUserId();
+    String getBankClientId();
+}
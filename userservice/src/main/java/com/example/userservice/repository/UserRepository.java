@@ -1,13 +1,21 @@
 package com.example.userservice.repository;
 
+import com.example.userservice.dto.UserBankClientMapping;
 import com.example.userservice.entity.User;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, UUID> {
@@ -19,4 +27,16 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     List<UUID> findActiveUserIds();
     List<User> findAllByEmailEndingWith(String suffix);
 
+    @Query("SELECT u.id AS userId, u.bankClientId AS bankClientId FROM User u " +
+            "WHERE u.id IN :userIds AND u.bankClientId IS NOT NULL")
+    List<UserBankClientMapping> findMappingsByUserIds(@Param("userIds") Collection<UUID> userIds);
+
+    @Query("SELECT u.id AS userId, u.bankClientId AS bankClientId FROM User u " +
+            "WHERE u.bankClientId IN :bankClientIds")
+    List<UserBankClientMapping> findMappingsByBankClientIds(@Param("bankClientIds") Collection<String> bankClientIds);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.id AS userId, u.bankClientId AS bankClientId FROM User u " +
+            "WHERE u.isActive = true AND u.bankClientId IS NOT NULL")
+    Stream<UserBankClientMapping> streamActiveMappings();
 }
@@ -26,6 +26,7 @@ public class AuthService {
     private final JwtService jwtService;
     private final EmailVerificationService emailVerificationService;
     private final AggregationServiceClient aggregationServiceClient;
+    private final UserLifecycleEventPublisher lifecycleEventPublisher;
 
     public AuthResponse register(RegisterRequest request) {
         if (userRepository.existsByEmail(request.getEmail())) {
@@ -44,6 +45,7 @@ public class AuthService {
         user.setVerified(false);
 
         User savedUser = userRepository.save(user);
+        lifecycleEventPublisher.publish(savedUser, "REGISTERED");
 
         BankVerificationResult verificationResult = verifyUserInBanks(savedUser);
 
@@ -0,0 +1,35 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserLifecycleEvent;
+import com.example.userservice.entity.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserLifecycleEventPublisher {
+
+    public static final String TOPIC = "user_lifecycle_events";
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    public void publish(User user, String eventType) {
+        UserLifecycleEvent event = UserLifecycleEvent.builder()
+                .eventType(eventType)
+                .userId(user.getId())
+                .bankClientId(user.getBankClientId())
+                .active(user.isActive())
+                .timestamp(System.currentTimeMillis())
+                .build();
+
+        kafkaTemplate.send(TOPIC, user.getId().toString(), event)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to publish {} for user {}: {}", eventType, user.getId(), ex.getMessage());
+                    }
+                });
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.userservice.service;
 
+import com.example.userservice.dto.UserBankClientMapping;
 import com.example.userservice.dto.UserProfile;
 import com.example.userservice.entity.User;
 import com.example.userservice.repository.UserRepository;
@@ -8,10 +9,16 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
@@ -20,10 +27,37 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final UserLifecycleEventPublisher lifecycleEventPublisher;
 
     private static final String USER_BANK_CACHE_PREFIX = "user:bank:";
     private static final String DEMO_USER_LOCK_PREFIX = "demo:user:lock:";
 
+    public Map<UUID, String> getBankClientIds(Collection<UUID> userIds) {
+        Map<UUID, String> result = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            userRepository.findMappingsByUserIds(userIds)
+                    .forEach(mapping -> result.put(mapping.getUserId(), mapping.getBankClientId()));
+        }
+        return result;
+    }
+
+    public Map<String, UUID> getUserIdsByBankClientIds(Collection<String> bankClientIds) {
+        Map<String, UUID> result = new HashMap<>();
+        if (!bankClientIds.isEmpty()) {
+            userRepository.findMappingsByBankClientIds(bankClientIds)
+                    .forEach(mapping -> result.put(mapping.getBankClientId(), mapping.getUserId()));
+        }
+        return result;
+    }
+
+    // Полное соответствие читается курсором, без загрузки всех пользователей в память
+    @Transactional(readOnly = true)
+    public void forEachActiveMapping(Consumer<UserBankClientMapping> consumer) {
+        try (Stream<UserBankClientMapping> mappings = userRepository.streamActiveMappings()) {
+            mappings.forEach(consumer);
+        }
+    }
+
     public UserProfile getUserProfile(UUID userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -40,6 +74,19 @@ public class UserService {
         return profile;
     }
 
+    public void setActive(UUID userId, boolean active) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        if (user.isActive() == active) {
+            return;
+        }
+
+        user.setActive(active);
+        userRepository.save(user);
+        lifecycleEventPublisher.publish(user, active ? "ACTIVATED" : "DEACTIVATED");
+    }
+
     public void verifyUser(String verificationToken) {
         User user = userRepository.findByVerificationToken(verificationToken)
                 .orElseThrow(() -> new RuntimeException("Invalid verification token"));